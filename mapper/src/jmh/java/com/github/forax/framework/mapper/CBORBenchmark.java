@@ -0,0 +1,74 @@
+package com.github.forax.framework.mapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.ParameterizedType;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Writes and reads the same catalog of 10 000 records as JSON encoded in UTF-8 and as CBOR.
+ * The size of both encodings is printed when the benchmark starts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--enable-preview", "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Benchmark)
+public class CBORBenchmark {
+  public record Item(int id, String name, double price, boolean available) { }
+  public record Catalog(String title, List<Item> items) { }
+
+  private final JSONWriter jsonWriter = new JSONWriter();
+  private final CBORWriter cborWriter = new CBORWriter();
+  private final JSONReader reader = new JSONReader();
+  private Catalog catalog;
+  private byte[] json;
+  private byte[] cbor;
+
+  @Setup
+  public void setup() {
+    reader.addTypeMatcher(type -> Optional.of(type)
+        .flatMap(t -> t instanceof ParameterizedType parameterizedType ? Optional.of(parameterizedType) : Optional.empty())
+        .filter(t -> t.getRawType() == List.class)
+        .map(t -> JSONReader.ObjectBuilder.list(t.getActualTypeArguments()[0])));
+    reader.addTypeMatcher(type -> Optional.of(Utils.erase(type)).filter(Class::isRecord).map(JSONReader.ObjectBuilder::record));
+    catalog = new Catalog("spring",
+        IntStream.range(0, 10_000).mapToObj(i -> new Item(i, "item " + i, i / 4.0, i % 3 != 0)).toList());
+    json = jsonWriter.toUTF8(catalog);
+    cbor = cborWriter.toCBOR(catalog);
+    System.out.println("\nJSON " + json.length + " bytes, CBOR " + cbor.length + " bytes");
+  }
+
+  @Benchmark
+  public byte[] writeJSON() {
+    return jsonWriter.toUTF8(catalog);
+  }
+
+  @Benchmark
+  public byte[] writeCBOR() {
+    return cborWriter.toCBOR(catalog);
+  }
+
+  @Benchmark
+  public Catalog readJSON() {
+    return reader.parseUTF8(json, Catalog.class);
+  }
+
+  @Benchmark
+  public Catalog readCBOR() {
+    return reader.parseCBOR(cbor, Catalog.class);
+  }
+}
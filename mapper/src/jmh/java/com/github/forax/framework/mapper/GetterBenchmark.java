@@ -0,0 +1,93 @@
+package com.github.forax.framework.mapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls the getters of a bean with {@link Method#invoke}, the path used by the JSONWriter before
+ * the getters were resolved as method handles, and with the method handles used by the JSONWriter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--enable-preview", "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Benchmark)
+public class GetterBenchmark {
+  public static final class Person {
+    private final String name;
+    private final int age;
+    private final boolean admin;
+    private final double score;
+
+    public Person(String name, int age, boolean admin, double score) {
+      this.name = name;
+      this.age = age;
+      this.admin = admin;
+      this.score = score;
+    }
+
+    public String getName() {
+      return name;
+    }
+    public int getAge() {
+      return age;
+    }
+    public boolean isAdmin() {
+      return admin;
+    }
+    public double getScore() {
+      return score;
+    }
+  }
+
+  private final Person person = new Person("Ana", 24, true, 12.5);
+  private final JSONWriter writer = new JSONWriter();
+  private Method[] getters;
+  private MethodHandle[] handles;
+
+  @Setup
+  public void setup() {
+    getters = Arrays.stream(Utils.beanInfo(Person.class).getPropertyDescriptors())
+        .filter(property -> !property.getName().equals("class"))
+        .map(property -> property.getReadMethod())
+        .toArray(Method[]::new);
+    handles = Arrays.stream(getters)
+        .map(getter -> Utils.unreflect(getter).asType(MethodType.methodType(Object.class, Object.class)))
+        .toArray(MethodHandle[]::new);
+  }
+
+  @Benchmark
+  public void reflectiveGetters(Blackhole blackhole) {
+    for (var getter : getters) {
+      blackhole.consume(Utils.invokeMethod(person, getter));
+    }
+  }
+
+  @Benchmark
+  public void methodHandleGetters(Blackhole blackhole) throws Throwable {
+    for (var handle : handles) {
+      blackhole.consume((Object) handle.invokeExact((Object) person));
+    }
+  }
+
+  @Benchmark
+  public String toJSON() {
+    return writer.toJSON(person);
+  }
+}
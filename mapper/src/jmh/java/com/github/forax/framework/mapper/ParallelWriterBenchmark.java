@@ -0,0 +1,56 @@
+package com.github.forax.framework.mapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Writes a list of records with the sequential path and with the parallel mode,
+ * to find the size of the list above which the parallel mode is faster.
+ * The result depends on the number of available processors, printed when the benchmark starts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--enable-preview", "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Benchmark)
+public class ParallelWriterBenchmark {
+  public record Line(String text, int number, double score) { }
+
+  @Param({ "1000", "10000", "100000", "1000000" })
+  private int size;
+
+  private final JSONWriter sequential = new JSONWriter();
+  private final JSONWriter parallel = new JSONWriter();
+  private List<Line> lines;
+
+  @Setup
+  public void setup() {
+    parallel.setParallelThreshold(1);
+    lines = IntStream.range(0, size).mapToObj(i -> new Line("line " + i, i, i / 3.0)).toList();
+    System.out.println("\navailable processors " + Runtime.getRuntime().availableProcessors());
+  }
+
+  @Benchmark
+  public byte[] sequential() {
+    return sequential.toUTF8(lines);
+  }
+
+  @Benchmark
+  public byte[] parallel() {
+    return parallel.toUTF8(lines);
+  }
+}
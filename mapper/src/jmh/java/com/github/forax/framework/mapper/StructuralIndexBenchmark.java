@@ -0,0 +1,84 @@
+package com.github.forax.framework.mapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Reads a large log-like JSON text encoded in UTF-8 with the scalar lexer used when the Vector API is not enabled,
+ * with the structural index computed by a scalar classifier and with the structural index computed
+ * by the Vector API.
+ * {@code scan} only reads the kinds of the tokens, {@code decode} also decodes every string and number.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "--enable-preview", "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Benchmark)
+public class StructuralIndexBenchmark {
+  @Param({ "utf8", "scalar-index", "vector-index" })
+  private String lexer;
+
+  private byte[] text;
+
+  @Setup
+  public void setup() {
+    text = IntStream.range(0, 200_000)
+        .mapToObj(i -> """
+            {"timestamp": "2024-03-%02dT12:%02d:%02dZ", "level": "%s", "latency": %d.%d, \
+            "message": "user %d logged in from \\"10.0.%d.%d\\"", "tags": ["auth", "web"], "ok": %b}\
+            """.formatted(i % 28 + 1, i % 60, i % 60, i % 10 == 0 ? "WARN" : "INFO", i % 1000, i % 10,
+                i, i % 256, i % 100, i % 7 != 0))
+        .collect(Collectors.joining(",\n", "[", "]"))
+        .getBytes(StandardCharsets.UTF_8);
+    System.out.println("\ninput " + text.length + " bytes");
+  }
+
+  private JSONStreamReader reader() {
+    return new JSONStreamReader(switch (lexer) {
+      case "utf8" -> new JSONLexer.Utf8Lexer(text, 0, text.length);
+      case "scalar-index" -> new JSONLexer.IndexedLexer(text, 0, text.length, StructuralIndexer.SCALAR);
+      case "vector-index" -> new JSONLexer.IndexedLexer(text, 0, text.length, StructuralIndexer.vectorClassifier());
+      default -> throw new AssertionError(lexer);
+    });
+  }
+
+  @Benchmark
+  public int scan() {
+    var reader = reader();
+    var count = 0;
+    while (reader.next() != JSONStreamReader.Kind.END_DOCUMENT) {
+      count++;
+    }
+    return count;
+  }
+
+  @Benchmark
+  public void decode(Blackhole blackhole) {
+    var reader = reader();
+    JSONStreamReader.Kind kind;
+    while ((kind = reader.next()) != JSONStreamReader.Kind.END_DOCUMENT) {
+      switch (kind) {
+        case STRING -> blackhole.consume(reader.stringValue());
+        case INTEGER -> blackhole.consume(reader.longValue());
+        case DOUBLE -> blackhole.consume(reader.doubleValue());
+        default -> blackhole.consume(kind);
+      }
+    }
+  }
+}
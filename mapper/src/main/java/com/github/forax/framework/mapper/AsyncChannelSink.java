@@ -0,0 +1,124 @@
+package com.github.forax.framework.mapper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A sink that writes the bytes into an asynchronous channel using two fixed-size buffers.
+ *
+ * Only one write is pending at a time, while a buffer is written by the channel,
+ * the bytes are copied into the other buffer, then the caller waits until the pending write
+ * completes before starting the next one, so a slow channel slows down the serialization
+ * instead of the bytes piling up in memory.
+ * This sink blocks, it is meant to be used on a virtual thread.
+ */
+final class AsyncChannelSink implements JSONOutput.Utf8Output.Sink {
+  /**
+   * An asynchronous channel, by example
+   * {@link java.nio.channels.AsynchronousSocketChannel} or {@link java.nio.channels.AsynchronousFileChannel}.
+   */
+  @FunctionalInterface
+  interface Channel {
+    /**
+     * Starts to write the bytes of a buffer.
+     * @param buffer the bytes to write.
+     * @param position the number of bytes written before this buffer.
+     * @param handler the handler called with the number of bytes written.
+     */
+    void write(ByteBuffer buffer, long position, CompletionHandler<Integer, Void> handler);
+  }
+
+  private final Channel channel;
+  private final ByteBuffer[] buffers;
+  private final Semaphore pendingWrite = new Semaphore(1);
+  private volatile Throwable failure;
+  private int index;
+  private long position;
+
+  AsyncChannelSink(Channel channel, int capacity) {
+    this.channel = channel;
+    this.buffers = new ByteBuffer[] { ByteBuffer.allocate(capacity), ByteBuffer.allocate(capacity) };
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    if (length == 0) {
+      return;
+    }
+    var buffer = buffers[index];
+    if (buffer.capacity() < length) {
+      buffer = buffers[index] = ByteBuffer.allocate(length);
+    }
+    buffer.clear().put(bytes, offset, length).flip();
+    index ^= 1;
+    awaitPendingWrite();
+    var start = position;
+    position += length;
+    write(buffer, start);
+  }
+
+  private void write(ByteBuffer buffer, long start) {
+    try {
+      channel.write(buffer, start + buffer.position(), new CompletionHandler<>() {
+        @Override
+        public void completed(Integer result, Void attachment) {
+          if (buffer.hasRemaining()) {
+            write(buffer, start);
+            return;
+          }
+          pendingWrite.release();
+        }
+
+        @Override
+        public void failed(Throwable exc, Void attachment) {
+          failure = exc;
+          pendingWrite.release();
+        }
+      });
+    } catch (RuntimeException | Error e) {
+      // the channel may reject a write synchronously, by example if it is closed,
+      // the write is then never completed and the handler never called
+      failure = e;
+      pendingWrite.release();
+    }
+  }
+
+  private void awaitPendingWrite() throws IOException {
+    try {
+      pendingWrite.acquire();
+    } catch (InterruptedException e) {
+      throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+    }
+    var failure = this.failure;
+    if (failure != null) {
+      pendingWrite.release();
+      if (failure instanceof IOException ioException) {
+        throw ioException;
+      }
+      throw new IOException(failure);
+    }
+  }
+
+  /**
+   * Waits until the pending write, if any, completes without reporting its failure,
+   * so the buffers are not read by the channel anymore.
+   * The wait can not be interrupted, the interrupt status of the thread is kept.
+   */
+  void drain() {
+    pendingWrite.acquireUninterruptibly();
+    pendingWrite.release();
+  }
+
+  /**
+   * Waits until the last write completes.
+   * @return the number of bytes written.
+   * @throws IOException if a write failed.
+   */
+  long close() throws IOException {
+    awaitPendingWrite();
+    return position;
+  }
+}
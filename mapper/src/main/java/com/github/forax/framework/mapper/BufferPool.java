@@ -0,0 +1,92 @@
+package com.github.forax.framework.mapper;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * A lock-free pool of buffers (arrays) shared by all the threads.
+ *
+ * Unlike a ThreadLocal, a buffer is not tied to a thread, so the pool works the same way
+ * with virtual threads, the buffers are stored in a small array of slots and a thread
+ * only tries a few slots starting at a slot that depends on its thread id.
+ * Buffers bigger than the maximum capacity are not pooled, so a huge payload does not
+ * keep its buffer alive forever, and buffers smaller than the default capacity are not pooled either,
+ * so a buffer returned by {@link #acquire()} always has at least the default capacity.
+ *
+ * @param <A> the type of the buffers.
+ */
+final class BufferPool<A> {
+  private static final int PROBES = 4;
+
+  private final AtomicReferenceArray<A> slots;
+  private final IntFunction<? extends A> factory;
+  private final ToIntFunction<? super A> lengthFunction;
+  private final int capacity;
+  private final int maxCapacity;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  BufferPool(IntFunction<? extends A> factory, ToIntFunction<? super A> lengthFunction, int capacity, int maxCapacity) {
+    var slotCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) << 1;
+    this.slots = new AtomicReferenceArray<>(slotCount);
+    this.factory = factory;
+    this.lengthFunction = lengthFunction;
+    this.capacity = capacity;
+    this.maxCapacity = maxCapacity;
+  }
+
+  private int probe() {
+    return (int) Thread.currentThread().threadId();
+  }
+
+  /**
+   * Returns a buffer from the pool or a new buffer if there is no buffer available.
+   * @return a buffer with at least the default capacity.
+   */
+  A acquire() {
+    var mask = slots.length() - 1;
+    var probe = probe();
+    for (var i = 0; i < PROBES; i++) {
+      var index = (probe + i) & mask;
+      if (slots.getPlain(index) == null) {
+        continue;
+      }
+      var buffer = slots.getAndSet(index, null);
+      if (buffer != null) {
+        hits.increment();
+        return buffer;
+      }
+    }
+    misses.increment();
+    return factory.apply(capacity);
+  }
+
+  /**
+   * Gives a buffer back to the pool, the buffer is dropped if it's too big, too small or if the pool is full.
+   * @param buffer the buffer, it should not be used after this call.
+   */
+  void release(A buffer) {
+    var length = lengthFunction.applyAsInt(buffer);
+    if (length < capacity || length > maxCapacity) {
+      return;
+    }
+    var mask = slots.length() - 1;
+    var probe = probe();
+    for (var i = 0; i < PROBES; i++) {
+      var index = (probe + i) & mask;
+      if (slots.getPlain(index) == null && slots.compareAndSet(index, null, buffer)) {
+        return;
+      }
+    }
+  }
+
+  long hits() {
+    return hits.sum();
+  }
+
+  long misses() {
+    return misses.sum();
+  }
+}
@@ -0,0 +1,237 @@
+package com.github.forax.framework.mapper;
+
+import com.github.forax.framework.mapper.ToyJSONParser.JSONVisitor;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.github.forax.framework.mapper.CBORWriter.ARRAY;
+import static com.github.forax.framework.mapper.CBORWriter.FALSE;
+import static com.github.forax.framework.mapper.CBORWriter.FLOAT32;
+import static com.github.forax.framework.mapper.CBORWriter.FLOAT64;
+import static com.github.forax.framework.mapper.CBORWriter.MAP;
+import static com.github.forax.framework.mapper.CBORWriter.NEGATIVE_INTEGER;
+import static com.github.forax.framework.mapper.CBORWriter.NULL;
+import static com.github.forax.framework.mapper.CBORWriter.SIMPLE;
+import static com.github.forax.framework.mapper.CBORWriter.TEXT_STRING;
+import static com.github.forax.framework.mapper.CBORWriter.TRUE;
+import static com.github.forax.framework.mapper.CBORWriter.UNSIGNED_INTEGER;
+
+/**
+ * A parser of the subset of <a href="https://www.rfc-editor.org/rfc/rfc8949.html">CBOR</a>
+ * written by the {@link CBORWriter}, it calls the same {@link JSONVisitor} as the {@link ToyJSONParser}.
+ *
+ * Integers are sent to the visitor as {@link Integer} if they fit in an int, as {@link Long} otherwise,
+ * floating point numbers are sent as {@link Double} or {@link Float}.
+ * Byte strings, tags and indefinite lengths are not supported.
+ *
+ * The data items are parsed recursively, so the nesting of the arrays and the maps
+ * is limited to {@link #MAX_DEPTH} levels.
+ */
+final class CBORParser {
+  /**
+   * Maximum nesting of the arrays and the maps.
+   */
+  static final int MAX_DEPTH = 1_000;
+
+  private final byte[] data;
+  private int index;
+  private int depth;
+
+  private CBORParser(byte[] data) {
+    this.data = data;
+  }
+
+  /**
+   * Parse a CBOR data item and calls the visitor methods when an array, an object or a value is parsed.
+   *
+   * @param data a CBOR data item that is either a map or an array.
+   * @param visitor the visitor to call when parsing the data.
+   */
+  static void parse(byte[] data, JSONVisitor visitor) {
+    var parser = new CBORParser(data);
+    var initialByte = parser.peek();
+    var majorType = initialByte >>> 5;
+    if (majorType != MAP && majorType != ARRAY) {
+      throw parser.error("expect a map or an array");
+    }
+    parser.parseValue(null, visitor);
+    if (parser.index != data.length) {
+      throw parser.error("unexpected trailing data");
+    }
+  }
+
+  private IllegalStateException error(String message) {
+    return new IllegalStateException(message + " at " + index);
+  }
+
+  private int peek() {
+    if (index >= data.length) {
+      throw error("unexpected end of data");
+    }
+    return data[index] & 0xFF;
+  }
+
+  private long readBigEndian(int size) {
+    if (index + size > data.length) {
+      throw error("unexpected end of data");
+    }
+    var value = 0L;
+    for (var i = 0; i < size; i++) {
+      value = (value << 8) | (data[index++] & 0xFF);
+    }
+    return value;
+  }
+
+  private long readArgument(int additionalInfo) {
+    return switch (additionalInfo) {
+      case 24 -> readBigEndian(1);
+      case 25 -> readBigEndian(2);
+      case 26 -> readBigEndian(4);
+      case 27 -> readBigEndian(8);
+      default -> {
+        if (additionalInfo >= 24) {
+          throw error("unsupported additional information " + additionalInfo);
+        }
+        yield additionalInfo;
+      }
+    };
+  }
+
+  private String readText() {
+    var initialByte = peek();
+    if (initialByte >>> 5 != TEXT_STRING) {
+      throw error("expect a text string");
+    }
+    index++;
+    var size = readArgument(initialByte & 0x1F);
+    if (size < 0 || size > data.length - index) {
+      throw error("unexpected end of data");
+    }
+    var text = new String(data, index, (int) size, StandardCharsets.UTF_8);
+    index += (int) size;
+    return text;
+  }
+
+  private void enter() {
+    if (++depth > MAX_DEPTH) {
+      throw error("nesting deeper than " + MAX_DEPTH);
+    }
+  }
+
+  private static Object asInteger(long value) {
+    return value == (int) value ? (Object) (int) value : (Object) value;
+  }
+
+  private void parseValue(String key, JSONVisitor visitor) {
+    var initialByte = peek();
+    var majorType = initialByte >>> 5;
+    if (majorType == TEXT_STRING) {
+      visitor.value(key, readText());
+      return;
+    }
+    index++;
+    var additionalInfo = initialByte & 0x1F;
+    switch (majorType) {
+      case UNSIGNED_INTEGER -> {
+        var value = readArgument(additionalInfo);
+        if (value < 0) {
+          throw error("integer too large");
+        }
+        visitor.value(key, asInteger(value));
+      }
+      case NEGATIVE_INTEGER -> {
+        var value = readArgument(additionalInfo);
+        if (value < 0) {
+          throw error("integer too large");
+        }
+        visitor.value(key, asInteger(-1 - value));
+      }
+      case ARRAY -> {
+        var size = readArgument(additionalInfo);
+        enter();
+        visitor.startArray(key);
+        for (var i = 0L; i < size; i++) {
+          if (visitor.skip(null)) {
+            skipValue();
+          } else {
+            parseValue(null, visitor);
+          }
+        }
+        visitor.endArray(key);
+        depth--;
+      }
+      case MAP -> {
+        var size = readArgument(additionalInfo);
+        enter();
+        visitor.startObject(key);
+        for (var i = 0L; i < size; i++) {
+          var propertyKey = readText();
+          if (visitor.skip(propertyKey)) {
+            skipValue();
+          } else {
+            parseValue(propertyKey, visitor);
+          }
+        }
+        visitor.endObject(key);
+        depth--;
+      }
+      case SIMPLE -> {
+        switch (initialByte) {
+          case FALSE -> visitor.value(key, false);
+          case TRUE -> visitor.value(key, true);
+          case NULL -> visitor.value(key, null);
+          case FLOAT32 -> visitor.value(key, Float.intBitsToFloat((int) readBigEndian(4)));
+          case FLOAT64 -> visitor.value(key, Double.longBitsToDouble(readBigEndian(8)));
+          default -> throw error("unsupported simple value " + initialByte);
+        }
+      }
+      default -> throw error("unsupported major type " + majorType);
+    }
+  }
+
+  /**
+   * Skips a data item by only reading the headers, the strings are not decoded.
+   */
+  private void skipValue() {
+    var initialByte = peek();
+    index++;
+    var majorType = initialByte >>> 5;
+    var additionalInfo = initialByte & 0x1F;
+    switch (majorType) {
+      case UNSIGNED_INTEGER, NEGATIVE_INTEGER -> readArgument(additionalInfo);
+      case TEXT_STRING -> {
+        var size = readArgument(additionalInfo);
+        if (size < 0 || size > data.length - index) {
+          throw error("unexpected end of data");
+        }
+        index += (int) size;
+      }
+      case ARRAY -> {
+        var size = readArgument(additionalInfo);
+        enter();
+        for (var i = 0L; i < size; i++) {
+          skipValue();
+        }
+        depth--;
+      }
+      case MAP -> {
+        var size = readArgument(additionalInfo);
+        enter();
+        for (var i = 0L; i < size; i++) {
+          skipValue();
+          skipValue();
+        }
+        depth--;
+      }
+      case SIMPLE -> {
+        switch (initialByte) {
+          case FALSE, TRUE, NULL -> {}
+          case FLOAT32 -> readBigEndian(4);
+          case FLOAT64 -> readBigEndian(8);
+          default -> throw error("unsupported simple value " + initialByte);
+        }
+      }
+      default -> throw error("unsupported major type " + majorType);
+    }
+  }
+}
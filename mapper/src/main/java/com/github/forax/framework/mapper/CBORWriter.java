@@ -0,0 +1,247 @@
+package com.github.forax.framework.mapper;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts an object to <a href="https://www.rfc-editor.org/rfc/rfc8949.html">CBOR</a>,
+ * a binary encoding of JSON with no number to text conversion and length-prefixed strings.
+ *
+ * The beans and the records are written with the same properties as the {@link JSONWriter},
+ * so the names specified by {@link JSONProperty} are honored.
+ * The {@link BigInteger}s and {@link BigDecimal}s are written as text strings.
+ *
+ * @see JSONReader#parseCBOR(byte[], java.lang.reflect.Type)
+ */
+public final class CBORWriter {
+  static final int UNSIGNED_INTEGER = 0;
+  static final int NEGATIVE_INTEGER = 1;
+  static final int TEXT_STRING = 3;
+  static final int ARRAY = 4;
+  static final int MAP = 5;
+  static final int SIMPLE = 7;
+
+  static final int FALSE = 0xF4;
+  static final int TRUE = 0xF5;
+  static final int NULL = 0xF6;
+  static final int FLOAT32 = 0xFA;
+  static final int FLOAT64 = 0xFB;
+
+  private record BinaryProperty(byte[] key, JSONWriter.Property property) { }
+
+  private static final ClassValue<List<BinaryProperty>> PROPERTIES = new ClassValue<>() {
+    @Override
+    protected List<BinaryProperty> computeValue(Class<?> type) {
+      return JSONWriter.properties(type).stream()
+          .map(property -> {
+            var encoder = new Encoder();
+            encoder.writeText(property.name());
+            return new BinaryProperty(encoder.toByteArray(), property);
+          })
+          .toList();
+    }
+  };
+
+  /**
+   * Returns the CBOR encoding of an object.
+   *
+   * @param o the object to encode.
+   * @return the CBOR encoding of an object.
+   */
+  public byte[] toCBOR(Object o) {
+    var encoder = new Encoder();
+    encoder.write(o);
+    return encoder.toByteArray();
+  }
+
+  private static final class Encoder {
+    private byte[] buffer = new byte[256];
+    private int length;
+
+    private byte[] toByteArray() {
+      return Arrays.copyOf(buffer, length);
+    }
+
+    private void ensureCapacity(int size) {
+      if (length + size > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, length + size));
+      }
+    }
+
+    private void writeByte(int value) {
+      ensureCapacity(1);
+      buffer[length++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] bytes) {
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, length, bytes.length);
+      length += bytes.length;
+    }
+
+    private void writeHead(int majorType, long argument) {
+      ensureCapacity(9);
+      var type = majorType << 5;
+      if (argument < 24) {
+        buffer[length++] = (byte) (type | argument);
+        return;
+      }
+      int size;
+      if (argument < 0x100) {
+        buffer[length++] = (byte) (type | 24);
+        size = 1;
+      } else if (argument < 0x1_0000) {
+        buffer[length++] = (byte) (type | 25);
+        size = 2;
+      } else if (argument < 0x1_0000_0000L) {
+        buffer[length++] = (byte) (type | 26);
+        size = 4;
+      } else {
+        buffer[length++] = (byte) (type | 27);
+        size = 8;
+      }
+      for (var i = size; --i >= 0;) {
+        buffer[length++] = (byte) (argument >>> (i << 3));
+      }
+    }
+
+    private void writeLong(long value) {
+      if (value >= 0) {
+        writeHead(UNSIGNED_INTEGER, value);
+      } else {
+        writeHead(NEGATIVE_INTEGER, -1 - value);
+      }
+    }
+
+    private void writeDouble(double value) {
+      writeByte(FLOAT64);
+      var bits = Double.doubleToRawLongBits(value);
+      ensureCapacity(8);
+      for (var i = 8; --i >= 0;) {
+        buffer[length++] = (byte) (bits >>> (i << 3));
+      }
+    }
+
+    private void writeFloat(float value) {
+      writeByte(FLOAT32);
+      var bits = Float.floatToRawIntBits(value);
+      ensureCapacity(4);
+      for (var i = 4; --i >= 0;) {
+        buffer[length++] = (byte) (bits >>> (i << 3));
+      }
+    }
+
+    private void writeText(String text) {
+      var bytes = text.getBytes(StandardCharsets.UTF_8);
+      writeHead(TEXT_STRING, bytes.length);
+      writeBytes(bytes);
+    }
+
+    private void write(Object o) {
+      switch (o) {
+        case null -> writeByte(NULL);
+        case Boolean b -> writeByte(b ? TRUE : FALSE);
+        case Integer i -> writeLong(i);
+        case Long l -> writeLong(l);
+        case Short s -> writeLong(s);
+        case Byte b -> writeLong(b);
+        case Double d -> writeDouble(d);
+        case Float f -> writeFloat(f);
+        case String s -> writeText(s);
+        case Character c -> writeText(c.toString());
+        case Enum<?> e -> writeText(e.name());
+        case BigInteger bigInteger -> writeText(bigInteger.toString());
+        case BigDecimal bigDecimal -> writeText(bigDecimal.toString());
+        case Object[] array -> {
+          writeHead(ARRAY, array.length);
+          for (var element : array) {
+            write(element);
+          }
+        }
+        case Collection<?> collection -> {
+          writeHead(ARRAY, collection.size());
+          for (var element : collection) {
+            write(element);
+          }
+        }
+        case Map<?, ?> map -> {
+          writeHead(MAP, map.size());
+          for (var entry : map.entrySet()) {
+            writeText(String.valueOf(entry.getKey()));
+            write(entry.getValue());
+          }
+        }
+        default -> {
+          if (o.getClass().isArray()) {
+            writePrimitiveArray(o);
+            return;
+          }
+          writeBean(o);
+        }
+      }
+    }
+
+    private void writePrimitiveArray(Object array) {
+      switch (array) {
+        case int[] values -> {
+          writeHead(ARRAY, values.length);
+          for (var value : values) {
+            writeLong(value);
+          }
+        }
+        case long[] values -> {
+          writeHead(ARRAY, values.length);
+          for (var value : values) {
+            writeLong(value);
+          }
+        }
+        case double[] values -> {
+          writeHead(ARRAY, values.length);
+          for (var value : values) {
+            writeDouble(value);
+          }
+        }
+        case float[] values -> {
+          writeHead(ARRAY, values.length);
+          for (var value : values) {
+            writeFloat(value);
+          }
+        }
+        case short[] values -> {
+          writeHead(ARRAY, values.length);
+          for (var value : values) {
+            writeLong(value);
+          }
+        }
+        case byte[] values -> {
+          writeHead(ARRAY, values.length);
+          for (var value : values) {
+            writeLong(value);
+          }
+        }
+        case boolean[] values -> {
+          writeHead(ARRAY, values.length);
+          for (var value : values) {
+            writeByte(value ? TRUE : FALSE);
+          }
+        }
+        case char[] values -> writeText(new String(values));
+        default -> throw new AssertionError("unknown array " + array.getClass().getName());
+      }
+    }
+
+    private void writeBean(Object o) {
+      var properties = PROPERTIES.get(o.getClass());
+      writeHead(MAP, properties.size());
+      for (var property : properties) {
+        writeBytes(property.key);
+        write(property.property.value(o));
+      }
+    }
+  }
+}
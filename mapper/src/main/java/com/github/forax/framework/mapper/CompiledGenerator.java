@@ -0,0 +1,35 @@
+package com.github.forax.framework.mapper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+import static java.lang.constant.ConstantDescs.DEFAULT_NAME;
+
+/**
+ * Template of the hidden classes defined by {@link GeneratorCompiler}.
+ *
+ * This class is never loaded as is, its bytecode is used to define one hidden class per bean type,
+ * the class data of each hidden class being the method handle that writes the bean.
+ * Because the method handle is stored in a static final field, the JIT considers it as a constant
+ * and is able to inline the whole code that writes the properties.
+ */
+final class CompiledGenerator implements Generator {
+  private static final MethodHandle GENERATOR;
+
+  static {
+    try {
+      GENERATOR = MethodHandles.classData(MethodHandles.lookup(), DEFAULT_NAME, MethodHandle.class);
+    } catch (IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  @Override
+  public void generate(JSONWriter writer, Object bean, JSONOutput output) {
+    try {
+      GENERATOR.invokeExact(writer, bean, output);
+    } catch (Throwable t) {
+      throw Utils.rethrow(t);
+    }
+  }
+}
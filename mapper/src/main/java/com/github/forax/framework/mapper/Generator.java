@@ -1,6 +1,5 @@
 package com.github.forax.framework.mapper;
 
-public interface Generator {
-    String generate(JSONWriter writer, Object bean);
+interface Generator {
+    void generate(JSONWriter writer, Object bean, JSONOutput output);
 }
-
@@ -0,0 +1,98 @@
+package com.github.forax.framework.mapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.lang.invoke.MethodHandles.dropArguments;
+import static java.lang.invoke.MethodHandles.filterArguments;
+import static java.lang.invoke.MethodHandles.foldArguments;
+import static java.lang.invoke.MethodHandles.insertArguments;
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Compiles the properties of a bean or a record to a {@link Generator} with a straight-line code.
+ *
+ * The code writing the properties is assembled as a method handle tree
+ * {@code (JSONWriter, Object, JSONOutput)void}, this tree is then stored as class data
+ * of a hidden class defined from the template {@link CompiledGenerator}.
+ */
+final class GeneratorCompiler {
+  private GeneratorCompiler() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Above this number of properties, the method handle tree is too deep to be worth it.
+   */
+  private static final int MAX_PROPERTIES = 64;
+
+  private static final MethodHandle WRITE_PROPERTY, APPEND_FRAGMENT;
+  static {
+    var lookup = MethodHandles.lookup();
+    try {
+      WRITE_PROPERTY = lookup.findStatic(GeneratorCompiler.class, "writeProperty",
+          methodType(void.class, JSONOutput.Fragment.class, JSONWriter.class, Object.class, JSONOutput.class));
+      APPEND_FRAGMENT = lookup.findVirtual(JSONOutput.class, "append",
+          methodType(void.class, JSONOutput.Fragment.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static void writeProperty(JSONOutput.Fragment key, JSONWriter writer, Object value, JSONOutput output) {
+    output.append(key);
+    writer.write(value, output);
+  }
+
+  private static final class TemplateHolder {
+    private static final byte[] TEMPLATE;
+    static {
+      try(var input = GeneratorCompiler.class.getResourceAsStream("CompiledGenerator.class")) {
+        TEMPLATE = Objects.requireNonNull(input, "template not found").readAllBytes();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Returns a generator that writes the properties in order or an empty optional
+   * if the properties can not be compiled.
+   *
+   * @param properties the properties of a bean or a record.
+   * @return a generator that writes the properties in order.
+   */
+  static Optional<Generator> compile(List<JSONWriter.Property> properties) {
+    if (properties.size() > MAX_PROPERTIES) {
+      return Optional.empty();
+    }
+    var generator = closingCode(properties.isEmpty() ? "{}" : "}");
+    for (var i = properties.size(); --i >= 0;) {
+      var property = properties.get(i);
+      var key = property.key(i == 0 ? "{" : ", ");
+      var writeProperty = filterArguments(insertArguments(WRITE_PROPERTY, 0, key), 1, property.getter());
+      generator = foldArguments(generator, writeProperty);
+    }
+    return Optional.of(defineHiddenClass(generator));
+  }
+
+  private static MethodHandle closingCode(String text) {
+    var appendText = insertArguments(APPEND_FRAGMENT, 1, JSONOutput.Fragment.of(text));
+    return dropArguments(appendText, 0, JSONWriter.class, Object.class);
+  }
+
+  private static Generator defineHiddenClass(MethodHandle generator) {
+    try {
+      var lookup = MethodHandles.lookup().defineHiddenClassWithClassData(TemplateHolder.TEMPLATE, generator, true);
+      var constructor = lookup.findConstructor(lookup.lookupClass(), methodType(void.class));
+      return (Generator) constructor.invoke();
+    } catch (Throwable t) {
+      throw Utils.rethrow(t);
+    }
+  }
+}
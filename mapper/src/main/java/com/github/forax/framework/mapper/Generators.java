@@ -0,0 +1,213 @@
+package com.github.forax.framework.mapper;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The generators of the types that are not introspected as beans or records,
+ * the JSON primitive values, the enums, the arrays, the collections and the maps.
+ *
+ * The primitive arrays are written with a loop over the array, so the values are not boxed.
+ */
+final class Generators {
+  private Generators() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Returns the generator of a type if the type is a builtin type.
+   *
+   * @param type the class of the value to write.
+   * @return the generator of a type or an empty optional if the type is not a builtin type.
+   */
+  static Optional<Generator> builtin(Class<?> type) {
+    return Optional.ofNullable(generator(type));
+  }
+
+  private static Generator generator(Class<?> type) {
+    if (type == Boolean.class) {
+      return (writer, o, output) -> output.append((Boolean) o ? "true" : "false");
+    }
+    if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class) {
+      return (writer, o, output) -> output.appendLong(((Number) o).longValue());
+    }
+    if (type == Double.class) {
+      return (writer, o, output) -> output.appendDouble((Double) o);
+    }
+    if (type == Float.class) {
+      return (writer, o, output) -> output.appendFloat((Float) o);
+    }
+    if (BigDecimal.class.isAssignableFrom(type) || BigInteger.class.isAssignableFrom(type)) {
+      return (writer, o, output) -> output.append(o.toString());
+    }
+    if (type == String.class || type == Character.class) {
+      return (writer, o, output) -> output.appendString(o.toString());
+    }
+    if (Enum.class.isAssignableFrom(type)) {
+      return (writer, o, output) -> output.appendString(((Enum<?>) o).name());
+    }
+    if (type.isArray()) {
+      return arrayGenerator(type.getComponentType());
+    }
+    if (Collection.class.isAssignableFrom(type)) {
+      return Generators::writeCollection;
+    }
+    if (Map.class.isAssignableFrom(type)) {
+      return Generators::writeMap;
+    }
+    return null;
+  }
+
+  private static Generator arrayGenerator(Class<?> componentType) {
+    if (!componentType.isPrimitive()) {
+      return Generators::writeObjectArray;
+    }
+    if (componentType == int.class) {
+      return (writer, o, output) -> writeIntArray((int[]) o, output);
+    }
+    if (componentType == long.class) {
+      return (writer, o, output) -> writeLongArray((long[]) o, output);
+    }
+    if (componentType == double.class) {
+      return (writer, o, output) -> writeDoubleArray((double[]) o, output);
+    }
+    if (componentType == float.class) {
+      return (writer, o, output) -> writeFloatArray((float[]) o, output);
+    }
+    if (componentType == short.class) {
+      return (writer, o, output) -> writeShortArray((short[]) o, output);
+    }
+    if (componentType == byte.class) {
+      return (writer, o, output) -> writeByteArray((byte[]) o, output);
+    }
+    if (componentType == boolean.class) {
+      return (writer, o, output) -> writeBooleanArray((boolean[]) o, output);
+    }
+    if (componentType == char.class) {
+      return (writer, o, output) -> output.appendString(new String((char[]) o));
+    }
+    throw new AssertionError("unknown primitive type " + componentType);
+  }
+
+  private static void writeIntArray(int[] array, JSONOutput output) {
+    output.append('[');
+    for (var i = 0; i < array.length; i++) {
+      if (i != 0) {
+        output.append(", ");
+      }
+      output.appendLong(array[i]);
+    }
+    output.append(']');
+  }
+
+  private static void writeLongArray(long[] array, JSONOutput output) {
+    output.append('[');
+    for (var i = 0; i < array.length; i++) {
+      if (i != 0) {
+        output.append(", ");
+      }
+      output.appendLong(array[i]);
+    }
+    output.append(']');
+  }
+
+  private static void writeDoubleArray(double[] array, JSONOutput output) {
+    output.append('[');
+    for (var i = 0; i < array.length; i++) {
+      if (i != 0) {
+        output.append(", ");
+      }
+      output.appendDouble(array[i]);
+    }
+    output.append(']');
+  }
+
+  private static void writeFloatArray(float[] array, JSONOutput output) {
+    output.append('[');
+    for (var i = 0; i < array.length; i++) {
+      if (i != 0) {
+        output.append(", ");
+      }
+      output.appendFloat(array[i]);
+    }
+    output.append(']');
+  }
+
+  private static void writeShortArray(short[] array, JSONOutput output) {
+    output.append('[');
+    for (var i = 0; i < array.length; i++) {
+      if (i != 0) {
+        output.append(", ");
+      }
+      output.appendLong(array[i]);
+    }
+    output.append(']');
+  }
+
+  private static void writeByteArray(byte[] array, JSONOutput output) {
+    output.append('[');
+    for (var i = 0; i < array.length; i++) {
+      if (i != 0) {
+        output.append(", ");
+      }
+      output.appendLong(array[i]);
+    }
+    output.append(']');
+  }
+
+  private static void writeBooleanArray(boolean[] array, JSONOutput output) {
+    output.append('[');
+    for (var i = 0; i < array.length; i++) {
+      if (i != 0) {
+        output.append(", ");
+      }
+      output.append(array[i] ? "true" : "false");
+    }
+    output.append(']');
+  }
+
+  private static void writeObjectArray(JSONWriter writer, Object o, JSONOutput output) {
+    var array = (Object[]) o;
+    output.append('[');
+    for (var i = 0; i < array.length; i++) {
+      if (i != 0) {
+        output.append(", ");
+      }
+      writer.write(array[i], output);
+    }
+    output.append(']');
+  }
+
+  private static void writeCollection(JSONWriter writer, Object o, JSONOutput output) {
+    var collection = (Collection<?>) o;
+    output.append('[');
+    var first = true;
+    for (var element : collection) {
+      if (!first) {
+        output.append(", ");
+      }
+      first = false;
+      writer.write(element, output);
+    }
+    output.append(']');
+  }
+
+  private static void writeMap(JSONWriter writer, Object o, JSONOutput output) {
+    var map = (Map<?, ?>) o;
+    output.append('{');
+    var first = true;
+    for (var entry : map.entrySet()) {
+      if (!first) {
+        output.append(", ");
+      }
+      first = false;
+      output.appendString(String.valueOf(entry.getKey()));
+      output.append(": ");
+      writer.write(entry.getValue(), output);
+    }
+    output.append('}');
+  }
+}
@@ -0,0 +1,433 @@
+package com.github.forax.framework.mapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A JSON text parsed lazily, the values are only decoded when they are accessed.
+ *
+ * <pre>
+ * var document = JSONDocument.parse(text);
+ * var id = document.get("items").get(3).get("id").asInt();
+ * </pre>
+ *
+ * Parsing checks that the JSON text is well-formed and records the elements in a tape, an array of longs
+ * with one long per element (object, array, key or value) that contains its kind and either the location
+ * of the value in the JSON text or, for an object or an array, the index of the element after its content
+ * in the tape, so a value can be skipped in constant time.
+ * The memory used is the JSON text encoded in UTF-8 plus 8 bytes per element.
+ *
+ * A document is immutable and can be shared between threads.
+ */
+public final class JSONDocument {
+  /**
+   * Kind of the values of a JSON document.
+   */
+  public enum Kind {
+    OBJECT,
+    ARRAY,
+    STRING,
+    INTEGER,
+    DOUBLE,
+    TRUE,
+    FALSE,
+    NULL
+  }
+
+  private static final Kind[] KINDS = Kind.values();
+  private static final int KIND_SHIFT = 60;
+  private static final int SIZE_SHIFT = 32;
+  private static final int MAX_SIZE = (1 << 28) - 1;  // the size of a bigger object or array is computed
+
+  private final byte[] text;
+  private final JSONLexer.CharSource source;  // used to decode the numbers
+  private final long[] tape;
+
+  private JSONDocument(byte[] text, long[] tape) {
+    this.text = text;
+    this.source = new JSONLexer.Utf8Source(text);
+    this.tape = tape;
+  }
+
+  /**
+   * Parses a JSON text.
+   * @param text a JSON text.
+   * @return a document.
+   * @throws IllegalStateException if the JSON text is not valid.
+   */
+  public static JSONDocument parse(String text) {
+    Objects.requireNonNull(text);
+    return parse(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Parses a JSON text encoded in UTF-8, the array is not copied so should not be modified.
+   * @param text a JSON text encoded in UTF-8.
+   * @return a document.
+   * @throws IllegalStateException if the JSON text is not valid.
+   */
+  public static JSONDocument parse(byte[] text) {
+    Objects.requireNonNull(text);
+    return new JSONDocument(text, tape(JSONLexer.utf8(text, 0, text.length), text.length));
+  }
+
+  private static long entry(Kind kind, int payload) {
+    return (long) kind.ordinal() << KIND_SHIFT | payload;
+  }
+
+  private static long[] tape(JSONLexer lexer, int textLength) {
+    var tape = new long[Math.max(16, textLength >> 3)];
+    var length = 0;
+    var containers = new int[16];  // index in the tape of the open objects and arrays
+    var sizes = new int[16];
+    var depth = 0;
+    var first = true;
+    var firstOfArray = false;
+    switch (lexer.next()) {
+      case LEFT_CURLY, LEFT_BRACKET -> {}
+      default -> throw lexer.error(JSONLexer.Kind.LEFT_CURLY, JSONLexer.Kind.LEFT_BRACKET);
+    }
+    for(;;) {
+      // records the element starting at the current token, a key takes at most one more long
+      if (length + 2 > tape.length) {
+        tape = Arrays.copyOf(tape, tape.length << 1);
+      }
+      var location = lexer.location;
+      switch (lexer.kind) {
+        case NULL -> tape[length++] = entry(Kind.NULL, location);
+        case FALSE -> tape[length++] = entry(Kind.FALSE, location);
+        case TRUE -> tape[length++] = entry(Kind.TRUE, location);
+        case INTEGER -> tape[length++] = entry(Kind.INTEGER, location);
+        case DOUBLE -> tape[length++] = entry(Kind.DOUBLE, location);
+        case STRING -> tape[length++] = entry(Kind.STRING, location);
+        case LEFT_CURLY, LEFT_BRACKET -> {
+          if (depth == containers.length) {
+            containers = Arrays.copyOf(containers, depth << 1);
+            sizes = Arrays.copyOf(sizes, depth << 1);
+          }
+          containers[depth] = length;
+          sizes[depth] = 0;
+          depth++;
+          tape[length++] = entry(lexer.kind == JSONLexer.Kind.LEFT_CURLY ? Kind.OBJECT : Kind.ARRAY, 0);
+          first = true;
+        }
+        default -> throw lexer.valueError(firstOfArray);
+      }
+      // moves to the next element, closing the objects and arrays that end
+      for(;;) {
+        var container = containers[depth - 1];
+        var isObject = tape[container] >>> KIND_SHIFT == Kind.OBJECT.ordinal();
+        var token = lexer.next();
+        if (token == (isObject ? JSONLexer.Kind.RIGHT_CURLY : JSONLexer.Kind.RIGHT_BRACKET)) {
+          depth--;
+          tape[container] |= (long) Math.min(sizes[depth], MAX_SIZE) << SIZE_SHIFT | length;
+          first = false;
+          if (depth == 0) {
+            return Arrays.copyOf(tape, length);
+          }
+          continue;
+        }
+        firstOfArray = first && !isObject;
+        if (first) {
+          first = false;
+        } else {
+          lexer.expect(JSONLexer.Kind.COMMA);
+          lexer.next();
+        }
+        sizes[depth - 1]++;
+        if (isObject) {
+          lexer.expect(JSONLexer.Kind.STRING);
+          tape[length++] = entry(Kind.STRING, lexer.location);
+          lexer.next();
+          lexer.expect(JSONLexer.Kind.COLON);
+          lexer.next();
+        }
+        break;
+      }
+    }
+  }
+
+  /**
+   * Returns the root object or array of the document.
+   * @return the root object or array of the document.
+   */
+  public Value root() {
+    return new Value(0);
+  }
+
+  /**
+   * Returns the value of a key of the root object.
+   * @param key the key.
+   * @return the value of the key.
+   * @see Value#get(String)
+   */
+  public Value get(String key) {
+    return root().get(key);
+  }
+
+  /**
+   * Returns an element of the root array.
+   * @param index the index of the element.
+   * @return the element at the index.
+   * @see Value#get(int)
+   */
+  public Value get(int index) {
+    return root().get(index);
+  }
+
+  private static Kind kind(long entry) {
+    return KINDS[(int) (entry >>> KIND_SHIFT)];
+  }
+
+  /**
+   * Returns the index in the tape of the element after the element at index with its content.
+   */
+  private int skip(int index) {
+    var entry = tape[index];
+    return switch (kind(entry)) {
+      case OBJECT, ARRAY -> (int) entry;
+      default -> index + 1;
+    };
+  }
+
+  private int stringEnd(int location) {
+    var text = this.text;
+    for (var i = location + 1;; i++) {
+      switch (text[i]) {
+        case '"' -> {
+          return i;
+        }
+        case '\\' -> i++;
+        default -> {}
+      }
+    }
+  }
+
+  private String string(int location) {
+    var end = stringEnd(location);
+    var string = new String(text, location + 1, end - location - 1, StandardCharsets.UTF_8);
+    if (string.indexOf('\\') != -1) {
+      return JSONLexer.unescape(string, location);
+    }
+    return string;
+  }
+
+  private boolean keyEquals(int location, byte[] key, String name) {
+    var start = location + 1;
+    var end = stringEnd(location);
+    for (var i = start; i < end; i++) {
+      if (text[i] == '\\') {
+        return string(location).equals(name);
+      }
+    }
+    return Arrays.equals(text, start, end, key, 0, key.length);
+  }
+
+  private int numberEnd(int location) {
+    var text = this.text;
+    var i = location + 1;
+    loop: for (; i < text.length; i++) {
+      switch (text[i]) {
+        case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '+', '-', '.', 'e', 'E' -> {}
+        default -> { break loop; }
+      }
+    }
+    return i;
+  }
+
+  /**
+   * A value of a document, the value is only decoded when one of the methods {@code asXXX} is called.
+   */
+  public final class Value {
+    private final int index;
+
+    private Value(int index) {
+      this.index = index;
+    }
+
+    /**
+     * Returns the kind of the value.
+     * @return the kind of the value.
+     */
+    public Kind kind() {
+      return JSONDocument.kind(tape[index]);
+    }
+
+    private int location() {
+      return (int) tape[index];
+    }
+
+    private void checkKind(Kind expected) {
+      var kind = kind();
+      if (kind != expected) {
+        throw new IllegalStateException("value is not a " + expected + " but a " + kind
+            + (kind == Kind.OBJECT || kind == Kind.ARRAY ? "" : " at " + location()));
+      }
+    }
+
+    private void checkContainer() {
+      var kind = kind();
+      if (kind != Kind.OBJECT && kind != Kind.ARRAY) {
+        throw new IllegalStateException("value is not an OBJECT or an ARRAY but a " + kind + " at " + location());
+      }
+    }
+
+    /**
+     * Returns the number of keys of an object or the number of elements of an array.
+     * @return the number of keys or elements.
+     * @throws IllegalStateException if the value is not an object or an array.
+     */
+    public int size() {
+      checkContainer();
+      var size = (int) (tape[index] >>> SIZE_SHIFT) & MAX_SIZE;
+      if (size != MAX_SIZE) {
+        return size;
+      }
+      var count = 0;
+      var step = kind() == Kind.OBJECT ? 2 : 1;
+      var end = skip(index);
+      for (var i = index + 1; i < end; i = skip(i + step - 1)) {
+        count++;
+      }
+      return count;
+    }
+
+    /**
+     * Returns the value of a key of an object, the keys are compared without being decoded.
+     * @param key the key.
+     * @return the value of the key, or empty if there is no such key.
+     * @throws IllegalStateException if the value is not an object.
+     */
+    public Optional<Value> find(String key) {
+      Objects.requireNonNull(key);
+      checkKind(Kind.OBJECT);
+      var bytes = key.getBytes(StandardCharsets.UTF_8);
+      var end = skip(index);
+      for (var i = index + 1; i < end; i = skip(i + 1)) {
+        if (keyEquals((int) tape[i], bytes, key)) {
+          return Optional.of(new Value(i + 1));
+        }
+      }
+      return Optional.empty();
+    }
+
+    /**
+     * Returns the value of a key of an object.
+     * @param key the key.
+     * @return the value of the key.
+     * @throws IllegalStateException if the value is not an object or if there is no such key.
+     */
+    public Value get(String key) {
+      return find(key).orElseThrow(() -> new IllegalStateException("no key " + key));
+    }
+
+    /**
+     * Returns an element of an array, the elements before it are skipped without being decoded.
+     * @param index the index of the element.
+     * @return the element at the index.
+     * @throws IllegalStateException if the value is not an array.
+     * @throws IndexOutOfBoundsException if the index is out of bounds.
+     */
+    public Value get(int index) {
+      checkKind(Kind.ARRAY);
+      Objects.checkIndex(index, size());
+      var i = this.index + 1;
+      for (var j = 0; j < index; j++) {
+        i = skip(i);
+      }
+      return new Value(i);
+    }
+
+    /**
+     * Decodes a string.
+     * @return the decoded string.
+     * @throws IllegalStateException if the value is not a string.
+     */
+    public String asString() {
+      checkKind(Kind.STRING);
+      return string(location());
+    }
+
+    /**
+     * Decodes an integer.
+     * @return the value of the integer.
+     * @throws IllegalStateException if the value is not an integer or does not fit in a long.
+     */
+    public long asLong() {
+      checkKind(Kind.INTEGER);
+      var location = location();
+      try {
+        return JSONLexer.parseLong(source, location, numberEnd(location), location);
+      } catch (NumberFormatException e) {
+        throw new IllegalStateException("invalid integer at " + location, e);
+      }
+    }
+
+    /**
+     * Decodes an integer.
+     * @return the value of the integer.
+     * @throws IllegalStateException if the value is not an integer or does not fit in an int.
+     */
+    public int asInt() {
+      var value = asLong();
+      if ((int) value != value) {
+        throw new IllegalStateException("integer " + value + " does not fit in an int at " + location());
+      }
+      return (int) value;
+    }
+
+    /**
+     * Decodes a number, an integer or a double.
+     * @return the value of the number.
+     * @throws IllegalStateException if the value is not a number.
+     */
+    public double asDouble() {
+      if (kind() == Kind.INTEGER) {
+        return asLong();
+      }
+      checkKind(Kind.DOUBLE);
+      var location = location();
+      try {
+        return JSONLexer.parseDouble(source, location, numberEnd(location));
+      } catch (NumberFormatException e) {
+        throw new IllegalStateException("invalid double at " + location, e);
+      }
+    }
+
+    /**
+     * Returns the value of a boolean.
+     * @return the value of a boolean.
+     * @throws IllegalStateException if the value is not a boolean.
+     */
+    public boolean asBoolean() {
+      var kind = kind();
+      if (kind != Kind.TRUE && kind != Kind.FALSE) {
+        checkKind(Kind.TRUE);
+      }
+      return kind == Kind.TRUE;
+    }
+
+    /**
+     * Returns true if the value is null.
+     * @return true if the value is null.
+     */
+    public boolean isNull() {
+      return kind() == Kind.NULL;
+    }
+
+    @Override
+    public String toString() {
+      return switch (kind()) {
+        case OBJECT, ARRAY -> kind() + " of size " + size();
+        case STRING -> '"' + asString() + '"';
+        case INTEGER -> String.valueOf(asLong());
+        case DOUBLE -> String.valueOf(asDouble());
+        case TRUE -> "true";
+        case FALSE -> "false";
+        case NULL -> "null";
+      };
+    }
+  }
+}
@@ -0,0 +1,998 @@
+package com.github.forax.framework.mapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * A scanner of JSON tokens that recognizes one token at a time by switching on the current character.
+ *
+ * The lexer is the lookahead, the kind, the location and the bounds of the current token are stored
+ * in its fields, so no object is allocated per token, the text of a string is only decoded
+ * when {@link #text()} is called.
+ * There are three implementations, {@link CharLexer} scans chars, {@link Utf8Lexer}
+ * scans UTF-8 encoded bytes without decoding them first and {@link IndexedLexer} jumps from token to token
+ * of UTF-8 encoded bytes using the positions found by a {@link StructuralIndexer}.
+ *
+ * A lexer either scans an array containing the whole JSON text or a fixed-size buffer that is refilled
+ * from a {@link Reader} or an {@link InputStream}. When the end of the buffer is reached,
+ * the current token is moved at the start of the buffer and the rest of the buffer is refilled,
+ * the buffer only grows if a token is bigger than the buffer, so the memory used
+ * does not depend on the size of the JSON text.
+ * The text and the value of the current token are only available until the next call to {@link #next()}.
+ */
+abstract sealed class JSONLexer {
+  enum Kind {
+    NULL,
+    TRUE,
+    FALSE,
+    DOUBLE,
+    INTEGER,
+    STRING,
+    LEFT_CURLY,
+    RIGHT_CURLY,
+    LEFT_BRACKET,
+    RIGHT_BRACKET,
+    COLON,
+    COMMA
+  }
+
+  /**
+   * Kind of the current token.
+   */
+  Kind kind;
+
+  /**
+   * Location of the first character of the current token from the start of the JSON text.
+   */
+  int location;
+
+  /**
+   * Default size of the buffer when the JSON text is read from a {@link Reader} or an {@link InputStream}.
+   */
+  static final int BUFFER_CAPACITY = 8_192;
+
+  /**
+   * Recognizes the next token.
+   * @return the kind of the token.
+   * @throws IllegalStateException if there is no token or the token is not valid.
+   */
+  abstract Kind next();
+
+  /**
+   * Creates a lexer of a JSON text encoded in UTF-8,
+   * an {@link IndexedLexer} if the Vector API is enabled, a {@link Utf8Lexer} otherwise.
+   * @param input an array containing the JSON text.
+   * @param offset the index of the first byte of the JSON text.
+   * @param limit the index after the last byte of the JSON text.
+   * @return a new lexer.
+   */
+  static JSONLexer utf8(byte[] input, int offset, int limit) {
+    if (StructuralIndexer.VECTORIZED) {
+      return new IndexedLexer(input, offset, limit, StructuralIndexer.vectorClassifier());
+    }
+    return new Utf8Lexer(input, offset, limit);
+  }
+
+  /**
+   * Returns the text of the current token which should be a {@link Kind#STRING}, the escape sequences are decoded.
+   * @return the text of the current string.
+   */
+  abstract String text();
+
+  /**
+   * Returns the value of the current token which should be a {@link Kind#INTEGER}.
+   * @return the value of the current integer.
+   * @throws NumberFormatException if the integer is not valid or does not fit in a long.
+   */
+  abstract long longValue();
+
+  /**
+   * Returns the value of the current token which should be a {@link Kind#DOUBLE}.
+   * @return the value of the current double.
+   * @throws NumberFormatException if the double is not valid.
+   */
+  abstract double doubleValue();
+
+  final void expect(Kind kind) {
+    if (this.kind != kind) {
+      throw error(kind);
+    }
+  }
+
+  final IllegalStateException error(Kind... expectedKinds) {
+    return new IllegalStateException("expect " + Arrays.stream(expectedKinds).map(Kind::name).collect(joining(", ")) + " but recognized " + kind + " at " + location);
+  }
+
+  /**
+   * Returns the error of a token that does not start a value.
+   * @param firstOfArray true if the value is the first element of an array, so the array can also be closed.
+   * @return the error of a token that does not start a value.
+   */
+  final IllegalStateException valueError(boolean firstOfArray) {
+    if (firstOfArray) {
+      return error(Kind.NULL, Kind.FALSE, Kind.TRUE, Kind.INTEGER, Kind.DOUBLE, Kind.STRING,
+          Kind.LEFT_CURLY, Kind.LEFT_BRACKET, Kind.RIGHT_BRACKET);
+    }
+    return error(Kind.NULL, Kind.FALSE, Kind.TRUE, Kind.INTEGER, Kind.DOUBLE, Kind.STRING,
+        Kind.LEFT_CURLY, Kind.LEFT_BRACKET);
+  }
+
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  /**
+   * Returns {@code mantissa * 10^exponent} if it can be computed exactly with one rounding,
+   * the mantissa and the power of ten are both exactly representable as double (Clinger's fast path),
+   * or NaN otherwise.
+   */
+  private static double fastDouble(long mantissa, int exponent) {
+    if (mantissa > 1L << 53 || exponent < -22 || exponent > 22) {
+      return Double.NaN;
+    }
+    return exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+  }
+
+  private static boolean isBlank(int c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+  }
+
+  /**
+   * Decodes the escape sequences of a string.
+   * @param raw the text between the quotes.
+   * @param location the location of the string.
+   * @return the decoded string.
+   */
+  static String unescape(String raw, int location) {
+    var builder = new StringBuilder(raw.length());
+    for (var i = 0; i < raw.length(); i++) {
+      var c = raw.charAt(i);
+      if (c != '\\') {
+        builder.append(c);
+        continue;
+      }
+      switch (raw.charAt(++i)) {
+        case '"' -> builder.append('"');
+        case '\\' -> builder.append('\\');
+        case '/' -> builder.append('/');
+        case 'b' -> builder.append('\b');
+        case 'f' -> builder.append('\f');
+        case 'n' -> builder.append('\n');
+        case 'r' -> builder.append('\r');
+        case 't' -> builder.append('\t');
+        case 'u' -> {
+          if (i + 4 >= raw.length()) {
+            throw new IllegalStateException("invalid unicode escape at " + location);
+          }
+          var value = 0;
+          for (var j = i + 1; j < i + 5; j++) {
+            var digit = hexDigit(raw.charAt(j));
+            if (digit == -1) {
+              throw new IllegalStateException("invalid unicode escape at " + location);
+            }
+            value = value << 4 | digit;
+          }
+          builder.append((char) value);
+          i += 4;
+        }
+        default -> throw new IllegalStateException("invalid escape '\\" + raw.charAt(i) + "' at " + location);
+      }
+    }
+    return builder.toString();
+  }
+
+  private static int hexDigit(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    }
+    if (c >= 'A' && c <= 'F') {
+      return c - 'A' + 10;
+    }
+    return -1;
+  }
+
+  private static IllegalStateException unexpectedCharacter(int c, int location) {
+    return new IllegalStateException("unexpected character '" + (char) c + "' at " + location);
+  }
+
+  /**
+   * The characters of a JSON text, chars or UTF-8 encoded bytes, seen as ints,
+   * so the numbers and the keywords are decoded by the same code for all the lexers.
+   * Only the ASCII characters are meaningful, a non-ASCII byte is negative.
+   */
+  interface CharSource {
+    /**
+     * Returns the character at an index.
+     * @param index an index.
+     * @return the character at that index.
+     */
+    int charAt(int index);
+
+    /**
+     * Returns the text of the ASCII characters between start and end.
+     * @param start the index of the first character.
+     * @param end the index after the last character.
+     * @return the text of the characters.
+     */
+    String asciiText(int start, int end);
+  }
+
+  /**
+   * A source of UTF-8 encoded bytes.
+   */
+  record Utf8Source(byte[] buffer) implements CharSource {
+    @Override
+    public int charAt(int index) {
+      return buffer[index];
+    }
+
+    @Override
+    public String asciiText(int start, int end) {
+      return new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+  }
+
+  /**
+   * Checks the characters of a keyword after the first one.
+   */
+  static void checkKeyword(CharSource source, int start, String keyword, int location) {
+    for (var i = 1; i < keyword.length(); i++) {
+      var c = source.charAt(start + i);
+      if (c != keyword.charAt(i)) {
+        throw unexpectedCharacter(c & 0xFFFF, location + i);
+      }
+    }
+  }
+
+  /**
+   * Returns true if the character can follow a number or a keyword.
+   */
+  static boolean isDelimiter(int c) {
+    return switch (c) {
+      case ' ', '\t', '\n', '\r', '{', '}', '[', ']', ':', ',', '"' -> true;
+      default -> false;
+    };
+  }
+
+  /**
+   * Checks that the characters between start and end are a number of the JSON grammar (RFC 8259),
+   * an optional minus sign, an integer part without leading zero, an optional fraction
+   * and an optional exponent, so the numbers are validated the same way by all the lexers.
+   * @return true if the number is an integer, false if it has a fraction or an exponent.
+   * @throws IllegalStateException if the number is not valid.
+   */
+  static boolean checkNumber(CharSource source, int start, int end, int location) {
+    var i = start;
+    if (source.charAt(i) == '-') {
+      i++;
+    }
+    if (i < end && source.charAt(i) == '0') {
+      i++;
+    } else {
+      i = checkDigits(source, i, start, end, location);
+    }
+    var isInteger = true;
+    if (i < end && source.charAt(i) == '.') {
+      isInteger = false;
+      i = checkDigits(source, i + 1, start, end, location);
+    }
+    if (i < end && (source.charAt(i) == 'e' || source.charAt(i) == 'E')) {
+      isInteger = false;
+      i++;
+      if (i < end && (source.charAt(i) == '+' || source.charAt(i) == '-')) {
+        i++;
+      }
+      i = checkDigits(source, i, start, end, location);
+    }
+    if (i != end) {
+      throw invalidNumber(source, start, end, location);
+    }
+    return isInteger;
+  }
+
+  /**
+   * Checks that there is at least one digit at index.
+   * @return the index after the digits.
+   */
+  private static int checkDigits(CharSource source, int index, int start, int end, int location) {
+    var i = index;
+    while (i < end && source.charAt(i) >= '0' && source.charAt(i) <= '9') {
+      i++;
+    }
+    if (i == index) {
+      throw invalidNumber(source, start, end, location);
+    }
+    return i;
+  }
+
+  private static IllegalStateException invalidNumber(CharSource source, int start, int end, int location) {
+    return new IllegalStateException("invalid number " + source.asciiText(start, end) + " at " + location);
+  }
+
+  private static IllegalStateException controlCharacter(int c, int location) {
+    return new IllegalStateException("unescaped control character U+%04X at %d".formatted(c, location));
+  }
+
+  /**
+   * Returns the value of the integer between start and end.
+   * @throws NumberFormatException if the integer is not valid or does not fit in a long.
+   */
+  static long parseLong(CharSource source, int start, int end, int location) {
+    var negative = source.charAt(start) == '-';
+    var first = negative ? start + 1 : start;
+    var length = end - first;
+    if (length == 0 || length > 18) {  // may overflow
+      return Long.parseLong(source.asciiText(start, end));
+    }
+    var value = 0L;
+    for (var i = first; i < end; i++) {
+      var digit = source.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        throw new NumberFormatException("invalid number " + source.asciiText(start, end) + " at " + location);
+      }
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Returns the value of the double between start and end.
+   * @throws NumberFormatException if the double is not valid.
+   */
+  static double parseDouble(CharSource source, int start, int end) {
+    var i = start;
+    var negative = source.charAt(i) == '-';
+    if (negative) {
+      i++;
+    }
+    var mantissa = 0L;
+    var digits = 0;
+    var scale = 0;
+    var exponent = 0;
+    var fraction = false;
+    loop: for (; i < end; i++) {
+      var c = source.charAt(i);
+      switch (c) {
+        case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' -> {
+          if (++digits > 18) {
+            break loop;
+          }
+          mantissa = mantissa * 10 + (c - '0');
+          if (fraction) {
+            scale++;
+          }
+        }
+        case '.' -> {
+          if (fraction) {
+            break loop;
+          }
+          fraction = true;
+        }
+        case 'e', 'E' -> {
+          if (i + 1 == end) {
+            break loop;
+          }
+          var sign = source.charAt(i + 1);
+          var exponentNegative = sign == '-';
+          var j = sign == '-' || sign == '+' ? i + 2 : i + 1;
+          if (j == end || end - j > 3) {
+            break loop;
+          }
+          for (; j < end; j++) {
+            var digit = source.charAt(j) - '0';
+            if (digit < 0 || digit > 9) {
+              break loop;
+            }
+            exponent = exponent * 10 + digit;
+          }
+          i = end;
+          exponent = exponentNegative ? -exponent : exponent;
+          break loop;
+        }
+        default -> { break loop; }
+      }
+    }
+    if (i == end && digits != 0) {
+      var value = fastDouble(mantissa, exponent - scale);
+      if (value == value) {  // not NaN
+        return negative ? -value : value;
+      }
+    }
+    return Double.parseDouble(source.asciiText(start, end));
+  }
+
+  /**
+   * A lexer that scans chars.
+   */
+  static final class CharLexer extends JSONLexer implements JSONLexer.CharSource {
+    private final Reader reader;
+    private char[] buffer;
+    private int limit;
+    private int offset;  // index in the buffer of the first char of the text
+    private int start;   // index in the buffer of the current token
+    private int index;
+    private int textEnd;
+    private boolean escaped;
+    private String text;
+
+    CharLexer(char[] input) {
+      this.reader = null;
+      this.buffer = input;
+      this.limit = input.length;
+    }
+
+    CharLexer(Reader reader, int capacity) {
+      this.reader = reader;
+      this.buffer = new char[capacity];
+    }
+
+    /**
+     * Moves the current token at the start of the buffer and reads more chars,
+     * the indexes {@link #start} and {@link #index} are updated.
+     * @return false if there is no more chars.
+     */
+    private boolean refill() {
+      if (reader == null) {
+        return false;
+      }
+      var keep = start;
+      var length = limit - keep;
+      if (length == buffer.length) {  // the token fills the buffer
+        buffer = Arrays.copyOf(buffer, buffer.length << 1);
+      } else if (keep != 0) {
+        System.arraycopy(buffer, keep, buffer, 0, length);
+      }
+      limit = length;
+      offset -= keep;
+      start -= keep;
+      index -= keep;
+      textEnd -= keep;
+      int read;
+      try {
+        do {
+          read = reader.read(buffer, limit, buffer.length - limit);
+        } while (read == 0);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (read == -1) {
+        return false;
+      }
+      limit += read;
+      return true;
+    }
+
+    @Override
+    Kind next() {
+      char c;
+      for(;;) {
+        if (index == limit) {
+          start = index;
+          if (!refill()) {
+            throw new IllegalStateException("no token recognized");
+          }
+        }
+        c = buffer[index];
+        if (!isBlank(c)) {
+          break;
+        }
+        index++;
+      }
+      start = index;
+      location = index - offset;
+      index++;
+      return kind = switch (c) {
+        case '{' -> Kind.LEFT_CURLY;
+        case '}' -> Kind.RIGHT_CURLY;
+        case '[' -> Kind.LEFT_BRACKET;
+        case ']' -> Kind.RIGHT_BRACKET;
+        case ':' -> Kind.COLON;
+        case ',' -> Kind.COMMA;
+        case '"' -> string();
+        case 'n' -> keyword("null", Kind.NULL);
+        case 't' -> keyword("true", Kind.TRUE);
+        case 'f' -> keyword("false", Kind.FALSE);
+        case '-', '.', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' -> number();
+        default -> throw unexpectedCharacter(c, location);
+      };
+    }
+
+    private Kind keyword(String keyword, Kind kind) {
+      while (start + keyword.length() > limit) {
+        if (!refill()) {
+          throw new IllegalStateException("unexpected end of text at " + location);
+        }
+      }
+      checkKeyword(this, start, keyword, location);
+      index = start + keyword.length();
+      checkEnd();
+      return kind;
+    }
+
+    /**
+     * Checks that the number or the keyword that ends at {@link #index} is followed by a delimiter.
+     */
+    private void checkEnd() {
+      if (index == limit && !refill()) {
+        return;
+      }
+      var c = buffer[index];
+      if (!isDelimiter(c)) {
+        throw unexpectedCharacter(c, index - offset);
+      }
+    }
+
+    private Kind number() {
+      var buffer = this.buffer;
+      var i = index;
+      loop: for(;; i++) {
+        if (i == limit) {
+          index = i;
+          if (!refill()) {
+            break;
+          }
+          i = index;
+          buffer = this.buffer;
+        }
+        switch (buffer[i]) {
+          case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '+', '-', '.', 'e', 'E' -> {}
+          default -> { break loop; }
+        }
+      }
+      index = i;
+      var isInteger = checkNumber(this, start, i, location);
+      checkEnd();
+      return isInteger ? Kind.INTEGER : Kind.DOUBLE;
+    }
+
+    private Kind string() {
+      var buffer = this.buffer;
+      var escaped = false;
+      for (var i = index;; i++) {
+        while (i >= limit) {  // i can be limit + 1 after an escape
+          index = i;
+          if (!refill()) {
+            throw new IllegalStateException("unterminated string at " + location);
+          }
+          i = index;
+          buffer = this.buffer;
+        }
+        switch (buffer[i]) {
+          case '"' -> {
+            this.escaped = escaped;
+            text = null;
+            textEnd = i;
+            index = i + 1;
+            return Kind.STRING;
+          }
+          case '\\' -> {
+            escaped = true;
+            i++;
+          }
+          default -> {
+            if (buffer[i] < ' ') {
+              throw controlCharacter(buffer[i], i - offset);
+            }
+          }
+        }
+      }
+    }
+
+    @Override
+    String text() {
+      var text = this.text;
+      if (text != null) {
+        return text;
+      }
+      text = new String(buffer, start + 1, textEnd - start - 1);
+      if (escaped) {
+        text = unescape(text, location);
+      }
+      return this.text = text;
+    }
+
+    @Override
+    public int charAt(int index) {
+      return buffer[index];
+    }
+
+    @Override
+    public String asciiText(int start, int end) {
+      return new String(buffer, start, end - start);
+    }
+
+    @Override
+    long longValue() {
+      return parseLong(this, start, index, location);
+    }
+
+    @Override
+    double doubleValue() {
+      return parseDouble(this, start, index);
+    }
+  }
+
+  /**
+   * A lexer that scans UTF-8 encoded bytes.
+   * All the JSON structural characters are ASCII, so the bytes are scanned without being decoded,
+   * the strings are decoded only when their text is requested and a string that only contains
+   * ASCII characters is copied as is.
+   * A multibyte character is never split because the buffer is only refilled between two tokens
+   * or by keeping the whole current token.
+   */
+  static final class Utf8Lexer extends JSONLexer implements JSONLexer.CharSource {
+    private final InputStream inputStream;
+    private byte[] buffer;
+    private int limit;
+    private int offset;  // index in the buffer of the first byte of the text
+    private int start;   // index in the buffer of the current token
+    private int index;
+    private int textEnd;
+    private boolean ascii;
+    private boolean escaped;
+    private String text;
+
+    Utf8Lexer(byte[] input, int offset, int limit) {
+      this.inputStream = null;
+      this.buffer = input;
+      this.offset = offset;
+      this.limit = limit;
+      this.index = offset;
+    }
+
+    Utf8Lexer(InputStream inputStream, int capacity) {
+      this.inputStream = inputStream;
+      this.buffer = new byte[capacity];
+    }
+
+    /**
+     * Moves the current token at the start of the buffer and reads more bytes,
+     * the indexes {@link #start} and {@link #index} are updated.
+     * @return false if there is no more bytes.
+     */
+    private boolean refill() {
+      if (inputStream == null) {
+        return false;
+      }
+      var keep = start;
+      var length = limit - keep;
+      if (length == buffer.length) {  // the token fills the buffer
+        buffer = Arrays.copyOf(buffer, buffer.length << 1);
+      } else if (keep != 0) {
+        System.arraycopy(buffer, keep, buffer, 0, length);
+      }
+      limit = length;
+      offset -= keep;
+      start -= keep;
+      index -= keep;
+      textEnd -= keep;
+      int read;
+      try {
+        do {
+          read = inputStream.read(buffer, limit, buffer.length - limit);
+        } while (read == 0);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (read == -1) {
+        return false;
+      }
+      limit += read;
+      return true;
+    }
+
+    @Override
+    Kind next() {
+      byte c;
+      for(;;) {
+        if (index == limit) {
+          start = index;
+          if (!refill()) {
+            throw new IllegalStateException("no token recognized");
+          }
+        }
+        c = buffer[index];
+        if (!isBlank(c)) {
+          break;
+        }
+        index++;
+      }
+      start = index;
+      location = index - offset;
+      index++;
+      return kind = switch (c) {
+        case '{' -> Kind.LEFT_CURLY;
+        case '}' -> Kind.RIGHT_CURLY;
+        case '[' -> Kind.LEFT_BRACKET;
+        case ']' -> Kind.RIGHT_BRACKET;
+        case ':' -> Kind.COLON;
+        case ',' -> Kind.COMMA;
+        case '"' -> string();
+        case 'n' -> keyword("null", Kind.NULL);
+        case 't' -> keyword("true", Kind.TRUE);
+        case 'f' -> keyword("false", Kind.FALSE);
+        case '-', '.', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' -> number();
+        default -> throw unexpectedCharacter(c & 0xFF, location);
+      };
+    }
+
+    private Kind keyword(String keyword, Kind kind) {
+      while (start + keyword.length() > limit) {
+        if (!refill()) {
+          throw new IllegalStateException("unexpected end of text at " + location);
+        }
+      }
+      checkKeyword(this, start, keyword, location);
+      index = start + keyword.length();
+      checkEnd();
+      return kind;
+    }
+
+    /**
+     * Checks that the number or the keyword that ends at {@link #index} is followed by a delimiter.
+     */
+    private void checkEnd() {
+      if (index == limit && !refill()) {
+        return;
+      }
+      var c = buffer[index];
+      if (!isDelimiter(c)) {
+        throw unexpectedCharacter(c & 0xFF, index - offset);
+      }
+    }
+
+    private Kind number() {
+      var buffer = this.buffer;
+      var i = index;
+      loop: for(;; i++) {
+        if (i == limit) {
+          index = i;
+          if (!refill()) {
+            break;
+          }
+          i = index;
+          buffer = this.buffer;
+        }
+        switch (buffer[i]) {
+          case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '+', '-', '.', 'e', 'E' -> {}
+          default -> { break loop; }
+        }
+      }
+      index = i;
+      var isInteger = checkNumber(this, start, i, location);
+      checkEnd();
+      return isInteger ? Kind.INTEGER : Kind.DOUBLE;
+    }
+
+    private Kind string() {
+      var buffer = this.buffer;
+      var escaped = false;
+      var bits = 0;
+      for (var i = index;; i++) {
+        while (i >= limit) {  // i can be limit + 1 after an escape
+          index = i;
+          if (!refill()) {
+            throw new IllegalStateException("unterminated string at " + location);
+          }
+          i = index;
+          buffer = this.buffer;
+        }
+        var b = buffer[i];
+        bits |= b;
+        switch (b) {
+          case '"' -> {
+            this.ascii = bits >= 0;
+            this.escaped = escaped;
+            text = null;
+            textEnd = i;
+            index = i + 1;
+            return Kind.STRING;
+          }
+          case '\\' -> {
+            escaped = true;
+            i++;
+          }
+          default -> {
+            if (b >= 0 && b < ' ') {
+              throw controlCharacter(b, i - offset);
+            }
+          }
+        }
+      }
+    }
+
+    @Override
+    String text() {
+      var text = this.text;
+      if (text != null) {
+        return text;
+      }
+      // an ASCII text is also a valid ISO-8859-1 text which is copied without decoding
+      text = new String(buffer, start + 1, textEnd - start - 1, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+      if (escaped) {
+        text = unescape(text, location);
+      }
+      return this.text = text;
+    }
+
+    @Override
+    public int charAt(int index) {
+      return buffer[index];
+    }
+
+    @Override
+    public String asciiText(int start, int end) {
+      return new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    long longValue() {
+      return parseLong(this, start, index, location);
+    }
+
+    @Override
+    double doubleValue() {
+      return parseDouble(this, start, index);
+    }
+  }
+
+  /**
+   * A lexer of UTF-8 encoded bytes that does not scan the bytes between the tokens,
+   * the positions of the tokens and of the closing quotes of the strings are computed
+   * by a {@link StructuralIndexer}, a batch of positions at a time.
+   * Like with {@link Utf8Lexer}, a string is decoded only when its text is requested.
+   */
+  static final class IndexedLexer extends JSONLexer implements JSONLexer.CharSource {
+    private static final int POSITIONS_CAPACITY = 1_024;
+
+    private final byte[] buffer;
+    private final int offset;  // index in the buffer of the first byte of the text
+    private final int limit;
+    private final StructuralIndexer indexer;
+    private final int[] positions = new int[POSITIONS_CAPACITY];
+    private int count;
+    private int cursor;
+    private int start;  // index in the buffer of the current token
+    private int end;    // index after a number or a keyword, index of the closing quote of a string
+    private String text;
+
+    IndexedLexer(byte[] input, int offset, int limit, StructuralIndexer.Classifier classifier) {
+      this.buffer = input;
+      this.offset = offset;
+      this.limit = limit;
+      this.indexer = new StructuralIndexer(input, offset, limit, classifier);
+    }
+
+    /**
+     * Returns the next position of the index, computes the next batch of positions if necessary.
+     * @return the next position or -1 if the end of the text is reached.
+     */
+    private int nextPosition() {
+      if (cursor == count) {
+        count = indexer.index(positions);
+        cursor = 0;
+        if (count == 0) {
+          return -1;
+        }
+      }
+      return positions[cursor++];
+    }
+
+    @Override
+    Kind next() {
+      var start = nextPosition();
+      if (start == -1) {
+        throw new IllegalStateException("no token recognized");
+      }
+      this.start = start;
+      location = start - offset;
+      var c = buffer[start];
+      return kind = switch (c) {
+        case '{' -> Kind.LEFT_CURLY;
+        case '}' -> Kind.RIGHT_CURLY;
+        case '[' -> Kind.LEFT_BRACKET;
+        case ']' -> Kind.RIGHT_BRACKET;
+        case ':' -> Kind.COLON;
+        case ',' -> Kind.COMMA;
+        case '"' -> string();
+        case 'n' -> keyword("null", Kind.NULL);
+        case 't' -> keyword("true", Kind.TRUE);
+        case 'f' -> keyword("false", Kind.FALSE);
+        case '-', '.', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' -> number();
+        default -> throw unexpectedCharacter(c & 0xFF, location);
+      };
+    }
+
+    /**
+     * Checks that the number or the keyword that ends at {@link #end} is followed by a delimiter,
+     * the index only contains the start of the numbers and the keywords.
+     */
+    private void checkEnd() {
+      if (end == limit) {
+        return;
+      }
+      var c = buffer[end];
+      if (!isDelimiter(c)) {
+        throw unexpectedCharacter(c & 0xFF, end - offset);
+      }
+    }
+
+    private Kind keyword(String keyword, Kind kind) {
+      if (start + keyword.length() > limit) {
+        throw new IllegalStateException("unexpected end of text at " + location);
+      }
+      checkKeyword(this, start, keyword, location);
+      end = start + keyword.length();
+      checkEnd();
+      return kind;
+    }
+
+    private Kind number() {
+      var buffer = this.buffer;
+      var i = start + 1;
+      loop: for(; i < limit; i++) {
+        switch (buffer[i]) {
+          case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '+', '-', '.', 'e', 'E' -> {}
+          default -> { break loop; }
+        }
+      }
+      end = i;
+      var isInteger = checkNumber(this, start, end, location);
+      checkEnd();
+      return isInteger ? Kind.INTEGER : Kind.DOUBLE;
+    }
+
+    private Kind string() {
+      var end = nextPosition();
+      if (end == -1) {
+        throw new IllegalStateException("unterminated string at " + location);
+      }
+      this.end = end;
+      text = null;
+      return Kind.STRING;
+    }
+
+    @Override
+    String text() {
+      var text = this.text;
+      if (text != null) {
+        return text;
+      }
+      text = new String(buffer, start + 1, end - start - 1, StandardCharsets.UTF_8);
+      if (text.indexOf('\\') != -1) {
+        text = unescape(text, location);
+      }
+      return this.text = text;
+    }
+
+    @Override
+    public int charAt(int index) {
+      return buffer[index];
+    }
+
+    @Override
+    public String asciiText(int start, int end) {
+      return new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    long longValue() {
+      return parseLong(this, start, end, location);
+    }
+
+    @Override
+    double doubleValue() {
+      return parseDouble(this, start, end);
+    }
+  }
+}
@@ -0,0 +1,539 @@
+package com.github.forax.framework.mapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * The sink used by the {@link JSONWriter} and its {@link Generator}s to write the JSON text.
+ *
+ * There are two implementations, {@link CharOutput} that writes characters and
+ * {@link Utf8Output} that directly encodes the JSON text in UTF-8.
+ */
+abstract sealed class JSONOutput {
+  /**
+   * A piece of JSON text pre-encoded once so it can be copied as is in any output.
+   *
+   * @param text the text.
+   * @param utf8 the text encoded in UTF-8.
+   */
+  record Fragment(String text, byte[] utf8) {
+    Fragment {
+      Objects.requireNonNull(text);
+      Objects.requireNonNull(utf8);
+    }
+
+    static Fragment of(String text) {
+      return new Fragment(text, text.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17
+  };
+  private static final double MAX_EXACT_LONG = 0x1p53;
+  private static final String[] CONTROL_ESCAPES = IntStream.range(0, 0x20)
+      .mapToObj(c -> switch (c) {
+        case '\b' -> "\\b";
+        case '\f' -> "\\f";
+        case '\n' -> "\\n";
+        case '\r' -> "\\r";
+        case '\t' -> "\\t";
+        default -> "\\u%04x".formatted(c);
+      })
+      .toArray(String[]::new);
+
+  private static final int POOLED_CAPACITY = 8_192;
+  private static final int MAX_POOLED_CAPACITY = 1 << 16;
+  static final BufferPool<char[]> CHAR_POOL =
+      new BufferPool<>(char[]::new, buffer -> buffer.length, POOLED_CAPACITY, MAX_POOLED_CAPACITY);
+  static final BufferPool<byte[]> BYTE_POOL =
+      new BufferPool<>(byte[]::new, buffer -> buffer.length, POOLED_CAPACITY, MAX_POOLED_CAPACITY);
+
+  // used to write the digits of the numbers from right to left
+  private final char[] digits = new char[32];
+
+  /**
+   * Appends an ASCII character.
+   * @param c an ASCII character.
+   */
+  abstract void append(char c);
+
+  /**
+   * Appends ASCII characters.
+   * @param chars an array of ASCII characters.
+   * @param offset index of the first character.
+   * @param length number of characters.
+   */
+  abstract void appendAscii(char[] chars, int offset, int length);
+
+  final void append(String text) {
+    append(text, 0, text.length());
+  }
+
+  abstract void append(String text, int start, int end);
+
+  abstract void append(Fragment fragment);
+
+  /**
+   * Appends the content of a buffer created by {@link #newBuffer()}.
+   * @param buffer a buffer of the same kind as this output.
+   */
+  abstract void append(JSONOutput buffer);
+
+  /**
+   * Creates a new buffer, without a sink, of the same kind as this output.
+   * @return a new buffer of the same kind as this output.
+   */
+  abstract JSONOutput newBuffer();
+
+  /**
+   * Appends a string as a JSON string, with the quotes and the special characters escaped.
+   * @param text the string to append.
+   */
+  final void appendString(String text) {
+    append('"');
+    var start = 0;
+    var size = text.length();
+    for(var i = 0; i < size; i++) {
+      var c = text.charAt(i);
+      if (c >= 0x20 && c != '"' && c != '\\') {
+        continue;
+      }
+      if (start != i) {
+        append(text, start, i);
+      }
+      if (c < 0x20) {
+        append(CONTROL_ESCAPES[c]);
+      } else {
+        append('\\');
+        append(c);
+      }
+      start = i + 1;
+    }
+    if (start != size) {
+      append(text, start, size);
+    }
+    append('"');
+  }
+
+  final void appendLong(long value) {
+    if (value == Long.MIN_VALUE) {  // can not be negated
+      append(Long.toString(value));
+      return;
+    }
+    var digits = this.digits;
+    var index = digits.length;
+    var negative = value < 0;
+    var magnitude = negative ? -value : value;
+    do {
+      digits[--index] = (char) ('0' + magnitude % 10);
+      magnitude /= 10;
+    } while (magnitude != 0);
+    if (negative) {
+      digits[--index] = '-';
+    }
+    appendAscii(digits, index, digits.length - index);
+  }
+
+  /**
+   * Appends a double with the same text as {@link Double#toString(double)}.
+   * The values that are written by {@link Double#toString(double)} without an exponent are directly
+   * written by finding the shortest number of fractional digits that round-trips,
+   * the others values fallback to {@link Double#toString(double)}.
+   *
+   * @param value the value to append.
+   * @throws IllegalArgumentException if the value is NaN or infinite, they have no JSON representation.
+   */
+  final void appendDouble(double value) {
+    if (!Double.isFinite(value)) {
+      throw new IllegalArgumentException(value + " is not a valid JSON number");
+    }
+    if (!appendPlainDecimal(value, false)) {
+      append(Double.toString(value));
+    }
+  }
+
+  /**
+   * Appends a float with the same text as {@link Float#toString(float)}, like {@link #appendDouble(double)}.
+   *
+   * @param value the value to append.
+   * @throws IllegalArgumentException if the value is NaN or infinite, they have no JSON representation.
+   */
+  final void appendFloat(float value) {
+    if (!Float.isFinite(value)) {
+      throw new IllegalArgumentException(value + " is not a valid JSON number");
+    }
+    if (!appendPlainDecimal(value, true)) {
+      append(Float.toString(value));
+    }
+  }
+
+  private boolean appendPlainDecimal(double value, boolean isFloat) {
+    var abs = Math.abs(value);
+    if (abs < 1e-3 || abs >= 1e7) {
+      return false;
+    }
+    for (var scale = 1; scale < POWERS_OF_TEN.length; scale++) {
+      var power = POWERS_OF_TEN[scale];
+      var scaled = Math.rint(abs * power);
+      if (scaled >= MAX_EXACT_LONG) {
+        return false;
+      }
+      var decimal = scaled / power;
+      if (isFloat ? (float) decimal == (float) abs : decimal == abs) {
+        appendDecimal(value < 0, (long) scaled, scale);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void appendDecimal(boolean negative, long unscaled, int scale) {
+    var digits = this.digits;
+    var index = digits.length;
+    for (var i = 0; i < scale; i++) {
+      digits[--index] = (char) ('0' + unscaled % 10);
+      unscaled /= 10;
+    }
+    digits[--index] = '.';
+    do {
+      digits[--index] = (char) ('0' + unscaled % 10);
+      unscaled /= 10;
+    } while (unscaled != 0);
+    if (negative) {
+      digits[--index] = '-';
+    }
+    appendAscii(digits, index, digits.length - index);
+  }
+
+  /**
+   * Writes the remaining characters into the sink if there is one.
+   * @throws UncheckedIOException if the sink raises an IOException.
+   */
+  abstract void flush();
+
+  /**
+   * Grows the buffer so that it can hold at least {@code capacity} characters without being resized,
+   * the buffer taken from the pool is given back if it is too small.
+   * @param capacity the expected length of the text.
+   */
+  abstract void reserve(int capacity);
+
+  /**
+   * Returns the number of characters or bytes in the buffer.
+   * @return the number of characters or bytes in the buffer.
+   */
+  abstract int size();
+
+  /**
+   * Gives the buffer back to the pool, this output should not be used after this call.
+   */
+  abstract void release();
+
+  /**
+   * Characters are accumulated into a buffer taken from a pool, if a sink {@link Appendable} is provided,
+   * the buffer is flushed into it each time the buffer is full, otherwise the buffer grows
+   * and the text is available using {@link #toString()}.
+   */
+  static final class CharOutput extends JSONOutput {
+    private final Appendable sink;
+    private char[] buffer;
+    private int length;
+
+    CharOutput() {
+      this(null);
+    }
+
+    CharOutput(Appendable sink) {
+      this.sink = sink;
+      this.buffer = CHAR_POOL.acquire();
+    }
+
+    @Override
+    void append(char c) {
+      ensureCapacity(1);
+      buffer[length++] = c;
+    }
+
+    @Override
+    void appendAscii(char[] chars, int offset, int length) {
+      ensureCapacity(length);
+      System.arraycopy(chars, offset, buffer, this.length, length);
+      this.length += length;
+    }
+
+    @Override
+    void append(String text, int start, int end) {
+      var size = end - start;
+      ensureCapacity(size);
+      text.getChars(start, end, buffer, length);
+      length += size;
+    }
+
+    @Override
+    void append(Fragment fragment) {
+      append(fragment.text);
+    }
+
+    @Override
+    void append(JSONOutput buffer) {
+      var charOutput = (CharOutput) buffer;
+      ensureCapacity(charOutput.length);
+      System.arraycopy(charOutput.buffer, 0, this.buffer, length, charOutput.length);
+      length += charOutput.length;
+    }
+
+    @Override
+    void reserve(int capacity) {
+      if (capacity <= buffer.length) {
+        return;
+      }
+      var previous = buffer;
+      buffer = new char[capacity];
+      System.arraycopy(previous, 0, buffer, 0, length);
+      CHAR_POOL.release(previous);
+    }
+
+    @Override
+    int size() {
+      return length;
+    }
+
+    @Override
+    CharOutput newBuffer() {
+      return new CharOutput();
+    }
+
+    private void ensureCapacity(int size) {
+      if (length + size <= buffer.length) {
+        return;
+      }
+      if (sink != null) {
+        flushBuffer();
+        if (size <= buffer.length) {
+          return;
+        }
+      }
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, length + size));
+    }
+
+    @Override
+    void flush() {
+      if (sink != null) {
+        flushBuffer();
+      }
+    }
+
+    private void flushBuffer() {
+      try {
+        switch (sink) {
+          case Writer writer -> writer.write(buffer, 0, length);
+          case StringBuilder builder -> builder.append(buffer, 0, length);
+          default -> sink.append(CharBuffer.wrap(buffer, 0, length));
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      length = 0;
+    }
+
+    @Override
+    void release() {
+      if (buffer != null) {
+        CHAR_POOL.release(buffer);
+        buffer = null;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return new String(buffer, 0, length);
+    }
+  }
+
+  /**
+   * Bytes encoded in UTF-8 are accumulated into a buffer taken from a pool, if a {@link Sink} is provided,
+   * the buffer is flushed into it each time the buffer is full, otherwise the buffer grows
+   * and the bytes are available using {@link #toByteArray()}.
+   */
+  static final class Utf8Output extends JSONOutput {
+    /**
+     * The destination of the bytes, by example {@link java.io.OutputStream#write(byte[], int, int)}.
+     */
+    @FunctionalInterface
+    interface Sink {
+      void write(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    private final Sink sink;
+    private final boolean pooled;  // true if the buffer comes from the pool or has grown from a pooled buffer
+    private byte[] buffer;
+    private int length;
+
+    Utf8Output() {
+      this(null);
+    }
+
+    Utf8Output(Sink sink) {
+      this.sink = sink;
+      this.pooled = true;
+      this.buffer = BYTE_POOL.acquire();
+    }
+
+    /**
+     * Creates an output with a buffer of a fixed capacity that is not taken from the pool
+     * and not given back to the pool.
+     */
+    Utf8Output(Sink sink, int capacity) {
+      this.sink = sink;
+      this.pooled = false;
+      this.buffer = new byte[capacity];
+    }
+
+    @Override
+    void append(char c) {
+      ensureCapacity(1);
+      buffer[length++] = (byte) c;
+    }
+
+    @Override
+    void appendAscii(char[] chars, int offset, int length) {
+      ensureCapacity(length);
+      var buffer = this.buffer;
+      var index = this.length;
+      for (var i = 0; i < length; i++) {
+        buffer[index + i] = (byte) chars[offset + i];
+      }
+      this.length = index + length;
+    }
+
+    @Override
+    void append(String text, int start, int end) {
+      for(var i = start; i < end; i++) {
+        var c = text.charAt(i);
+        if (length + 4 > buffer.length) {  // at most 4 bytes per code point
+          ensureCapacity(4);
+        }
+        if (c < 0x80) {
+          buffer[length++] = (byte) c;
+          continue;
+        }
+        if (c < 0x800) {
+          buffer[length++] = (byte) (0xC0 | (c >> 6));
+          buffer[length++] = (byte) (0x80 | (c & 0x3F));
+          continue;
+        }
+        if (Character.isSurrogate(c)) {
+          int codePoint;
+          if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+            codePoint = Character.toCodePoint(c, text.charAt(++i));
+          } else {
+            buffer[length++] = '?';  // malformed, same replacement as String.getBytes()
+            continue;
+          }
+          buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+          buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+          buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+          buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+          continue;
+        }
+        buffer[length++] = (byte) (0xE0 | (c >> 12));
+        buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buffer[length++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+
+    @Override
+    void append(Fragment fragment) {
+      var utf8 = fragment.utf8;
+      ensureCapacity(utf8.length);
+      System.arraycopy(utf8, 0, buffer, length, utf8.length);
+      length += utf8.length;
+    }
+
+    @Override
+    void append(JSONOutput buffer) {
+      var utf8Output = (Utf8Output) buffer;
+      ensureCapacity(utf8Output.length);
+      System.arraycopy(utf8Output.buffer, 0, this.buffer, length, utf8Output.length);
+      length += utf8Output.length;
+    }
+
+    @Override
+    void reserve(int capacity) {
+      if (capacity <= buffer.length) {
+        return;
+      }
+      var previous = buffer;
+      buffer = new byte[capacity];
+      System.arraycopy(previous, 0, buffer, 0, length);
+      if (pooled) {
+        BYTE_POOL.release(previous);
+      }
+    }
+
+    @Override
+    int size() {
+      return length;
+    }
+
+    @Override
+    Utf8Output newBuffer() {
+      return new Utf8Output();
+    }
+
+    private void ensureCapacity(int size) {
+      if (length + size <= buffer.length) {
+        return;
+      }
+      if (sink != null) {
+        flushBuffer();
+        if (size <= buffer.length) {
+          return;
+        }
+      }
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, length + size));
+    }
+
+    @Override
+    void flush() {
+      if (sink != null) {
+        flushBuffer();
+      }
+    }
+
+    private void flushBuffer() {
+      try {
+        sink.write(buffer, 0, length);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      length = 0;
+    }
+
+    @Override
+    void release() {
+      if (buffer != null) {
+        if (pooled) {
+          BYTE_POOL.release(buffer);
+        }
+        buffer = null;
+      }
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, length);
+    }
+
+    @Override
+    public String toString() {
+      return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+  }
+}
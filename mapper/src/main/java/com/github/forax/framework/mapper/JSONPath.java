@@ -0,0 +1,228 @@
+package com.github.forax.framework.mapper;
+
+import com.github.forax.framework.mapper.ToyJSONParser.JSONVisitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A compiled path that selects the values of a JSON text, by example {@code $.items[*].id}.
+ *
+ * A path starts with {@code $}, the root object or array, followed by steps:
+ * <ul>
+ *   <li>{@code .name} or {@code ['name']}, the value of a key of an object,
+ *   <li>{@code [3]}, an element of an array,
+ *   <li>{@code .*} or {@code [*]}, all the values of an object or all the elements of an array.
+ * </ul>
+ *
+ * When a JSON text is parsed with a path, the values that can not be selected are skipped
+ * without being decoded, the parser only counts their brackets.
+ * A path is immutable and can be shared between threads.
+ *
+ * @see JSONReader#select(String, JSONPath, java.lang.reflect.Type)
+ */
+public final class JSONPath {
+  private sealed interface Step {
+    boolean matches(String key, int index);
+  }
+  private record KeyStep(String key) implements Step {
+    @Override
+    public boolean matches(String key, int index) {
+      return this.key.equals(key);
+    }
+  }
+  private record IndexStep(int index) implements Step {
+    @Override
+    public boolean matches(String key, int index) {
+      return key == null && this.index == index;
+    }
+  }
+  private record WildcardStep() implements Step {
+    @Override
+    public boolean matches(String key, int index) {
+      return true;
+    }
+  }
+
+  private final String path;
+  private final List<Step> steps;
+
+  private JSONPath(String path, List<Step> steps) {
+    this.path = path;
+    this.steps = steps;
+  }
+
+  /**
+   * Compiles a path.
+   * @param path a path like {@code $.items[*].id}.
+   * @return a compiled path.
+   * @throws IllegalArgumentException if the path is not valid.
+   */
+  public static JSONPath compile(String path) {
+    Objects.requireNonNull(path);
+    if (!path.startsWith("$")) {
+      throw new IllegalArgumentException("a path should start with $ " + path);
+    }
+    var steps = new ArrayList<Step>();
+    var i = 1;
+    while (i < path.length()) {
+      switch (path.charAt(i)) {
+        case '.' -> {
+          var end = i + 1;
+          while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+            end++;
+          }
+          var name = path.substring(i + 1, end);
+          if (name.isEmpty()) {
+            throw new IllegalArgumentException("empty key at " + i + " in " + path);
+          }
+          steps.add(name.equals("*") ? new WildcardStep() : new KeyStep(name));
+          i = end;
+        }
+        case '[' -> {
+          var end = path.indexOf(']', i);
+          if (end == -1) {
+            throw new IllegalArgumentException("missing ] at " + i + " in " + path);
+          }
+          var content = path.substring(i + 1, end);
+          steps.add(bracketStep(content, i, path));
+          i = end + 1;
+        }
+        default -> throw new IllegalArgumentException("unexpected character '" + path.charAt(i) + "' at " + i + " in " + path);
+      }
+    }
+    return new JSONPath(path, List.copyOf(steps));
+  }
+
+  private static Step bracketStep(String content, int location, String path) {
+    if (content.equals("*")) {
+      return new WildcardStep();
+    }
+    if (content.length() >= 2 && content.startsWith("'") && content.endsWith("'")) {
+      return new KeyStep(content.substring(1, content.length() - 1));
+    }
+    try {
+      var index = Integer.parseInt(content);
+      if (index < 0) {
+        throw new IllegalArgumentException("negative index at " + location + " in " + path);
+      }
+      return new IndexStep(index);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("invalid step [" + content + "] at " + location + " in " + path, e);
+    }
+  }
+
+  /**
+   * Returns a visitor that only sends the selected values to the downstream visitor,
+   * as the elements of an array, so a selected value has no key.
+   * The returned visitor should be used to parse only one JSON text.
+   */
+  JSONVisitor filter(JSONVisitor downstream) {
+    Objects.requireNonNull(downstream);
+    return new JSONVisitor() {
+      // for each open object or array that is not selected, the number of steps matched and the index of the next element
+      private final ArrayDeque<int[]> frames = new ArrayDeque<>();
+      private int selectedDepth;  // depth inside a selected object or array, 0 if outside
+      private int matched;        // number of steps matched by the current value
+
+      @Override
+      public boolean skip(String key) {
+        if (selectedDepth != 0) {
+          return downstream.skip(key);
+        }
+        var frame = frames.peek();
+        var index = frame[1]++;
+        if (frame[0] == steps.size() || !steps.get(frame[0]).matches(key, index)) {
+          return true;
+        }
+        matched = frame[0] + 1;
+        return false;
+      }
+
+      private boolean isSelected() {
+        return matched == steps.size();
+      }
+
+      @Override
+      public void value(String key, Object value) {
+        if (selectedDepth != 0) {
+          downstream.value(key, value);
+          return;
+        }
+        if (isSelected()) {
+          downstream.value(null, value);
+        }
+      }
+
+      private void start(String key, boolean isObject) {
+        if (selectedDepth != 0 || isSelected()) {
+          var selectedKey = selectedDepth == 0 ? null : key;
+          selectedDepth++;
+          if (isObject) {
+            downstream.startObject(selectedKey);
+          } else {
+            downstream.startArray(selectedKey);
+          }
+          return;
+        }
+        frames.push(new int[] { matched, 0 });
+      }
+
+      private void end(String key, boolean isObject) {
+        if (selectedDepth != 0) {
+          selectedDepth--;
+          var selectedKey = selectedDepth == 0 ? null : key;
+          if (isObject) {
+            downstream.endObject(selectedKey);
+          } else {
+            downstream.endArray(selectedKey);
+          }
+          if (selectedDepth == 0 && frames.isEmpty()) {  // the root is selected
+            downstream.endArray(null);
+          }
+          return;
+        }
+        frames.pop();
+        if (frames.isEmpty()) {
+          downstream.endArray(null);
+        }
+      }
+
+      private void startRoot() {
+        if (frames.isEmpty() && selectedDepth == 0) {
+          downstream.startArray(null);
+          matched = 0;
+        }
+      }
+
+      @Override
+      public void startObject(String key) {
+        startRoot();
+        start(key, true);
+      }
+
+      @Override
+      public void endObject(String key) {
+        end(key, true);
+      }
+
+      @Override
+      public void startArray(String key) {
+        startRoot();
+        start(key, false);
+      }
+
+      @Override
+      public void endArray(String key) {
+        end(key, false);
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return path;
+  }
+}
@@ -1,14 +1,23 @@
 package com.github.forax.framework.mapper;
 
 import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.RecordComponent;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.lang.reflect.Type;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class JSONReader {
   private record BeanData(Constructor<?> constructor, Map<String, PropertyDescriptor> propertyMap) {
@@ -21,28 +30,106 @@ public class JSONReader {
     }
   }
 
+  /**
+   * How to build an object or an array from the keys and the values of a JSON text.
+   * The type provider returns the type of the value of a key, or {@link #SKIP} if the value should be skipped,
+   * a skipped value is not decoded and the populater is not called.
+   */
   public record ObjectBuilder<T>(Function<? super String, ? extends Type> typeProvider,
                                  Supplier<? extends T> supplier,
                                  Populater<? super T> populater,
                                  Function<? super T, ?> finisher) {
+    /**
+     * The type returned by a type provider for a key whose value should be skipped.
+     */
+    public static final Type SKIP = new Type() {
+      @Override
+      public String getTypeName() {
+        return "SKIP";
+      }
+
+      @Override
+      public String toString() {
+        return getTypeName();
+      }
+    };
+
     public interface Populater<T> {
       void populate(T instance, String key, Object value);
     }
 
     public static ObjectBuilder<Object> bean(Class<?> beanClass){
+      return bean(beanClass, false);
+    }
+
+    /**
+     * Returns a builder of a bean.
+     * The discriminator written by the {@link JSONWriter} for a subclass of a sealed type is always skipped.
+     *
+     * @param beanClass the class of the bean.
+     * @param skipUnknownKeys true if the values of the keys that are not a property of the bean are skipped,
+     *                        false if an unknown key is an error.
+     * @return a builder of a bean.
+     */
+    public static ObjectBuilder<Object> bean(Class<?> beanClass, boolean skipUnknownKeys){
       var beanData = BEAN_DATA_CLASS_VALUE.get(beanClass);
       var constructor = beanData.constructor;
+      var hasDiscriminator = SealedHierarchy.discriminator(beanClass).isPresent();
       return new ObjectBuilder<>(
-              key -> beanData.findProperty(key).getWriteMethod().getGenericParameterTypes()[0],
+              key -> {
+                if ((skipUnknownKeys || (hasDiscriminator && key.equals(SealedHierarchy.DISCRIMINATOR)))
+                    && !beanData.propertyMap.containsKey(key)) {
+                  return SKIP;
+                }
+                return beanData.findProperty(key).getWriteMethod().getGenericParameterTypes()[0];
+              },
               () -> Utils.newInstance(constructor),
               (instance, key, value) -> {
                 var setter = beanData.findProperty(key).getWriteMethod();
-                Utils.invokeMethod(instance, setter, value);
+                Utils.invokeMethod(instance, setter, convertInteger(setter.getParameterTypes()[0], key, value));
               },
               Function.identity()
       );
     }
 
+    /**
+     * Converts an integer to the numeric type of the property, a JSON integer is sent as an Integer
+     * if it fits in an int, as a Long otherwise.
+     * @throws IllegalStateException if the integer does not fit in the type of the property.
+     */
+    private static Object convertInteger(Class<?> type, String key, Object value) {
+      if (!(value instanceof Integer || value instanceof Long)) {
+        return value;
+      }
+      var longValue = ((Number) value).longValue();
+      if (type == byte.class || type == Byte.class) {
+        return (byte) checkRange(longValue, Byte.MIN_VALUE, Byte.MAX_VALUE, "a byte", key);
+      }
+      if (type == short.class || type == Short.class) {
+        return (short) checkRange(longValue, Short.MIN_VALUE, Short.MAX_VALUE, "a short", key);
+      }
+      if (type == int.class || type == Integer.class) {
+        return (int) checkRange(longValue, Integer.MIN_VALUE, Integer.MAX_VALUE, "an int", key);
+      }
+      if (type == long.class || type == Long.class) {
+        return longValue;
+      }
+      if (type == float.class || type == Float.class) {
+        return (float) longValue;
+      }
+      if (type == double.class || type == Double.class) {
+        return (double) longValue;
+      }
+      return value;
+    }
+
+    private static long checkRange(long value, long min, long max, String typeName, String key) {
+      if (value < min || value > max) {
+        throw new IllegalStateException("integer " + value + " does not fit in " + typeName + " for key " + key);
+      }
+      return value;
+    }
+
     public static ObjectBuilder<List<Object>> list(Type componentType){
       Objects.requireNonNull(componentType);
       return new ObjectBuilder<List<Object>>(
@@ -54,18 +141,110 @@ public class JSONReader {
     }
 
     public static ObjectBuilder<Object[]> record(Class<?> recordClass){
+      return record(recordClass, false);
+    }
+
+    /**
+     * Returns a builder of a record.
+     * The discriminator written by the {@link JSONWriter} for a subclass of a sealed type is always skipped.
+     *
+     * @param recordClass the class of the record.
+     * @param skipUnknownKeys true if the values of the keys that are not a component of the record are skipped,
+     *                        false if an unknown key is an error.
+     * @return a builder of a record.
+     */
+    public static ObjectBuilder<Object[]> record(Class<?> recordClass, boolean skipUnknownKeys){
       var array = recordClass.getRecordComponents();
       var map = IntStream.range(0, array.length)
               .boxed()
-              .collect(Collectors.toMap(i -> array[i].getName(), Function.identity()));
+              .collect(Collectors.toMap(i -> propertyName(array[i]), Function.identity()));
       var constructor = Utils.canonicalConstructor(recordClass, array);
+      var hasDiscriminator = SealedHierarchy.discriminator(recordClass).isPresent();
       return new ObjectBuilder<Object[]>(
-              key -> array[map.get(key)].getGenericType(),
+              key -> {
+                var index = map.get(key);
+                if (index == null) {
+                  if (skipUnknownKeys || (hasDiscriminator && key.equals(SealedHierarchy.DISCRIMINATOR))) {
+                    return SKIP;
+                  }
+                  throw new IllegalStateException("unknown key " + key + " for record " + recordClass.getName());
+                }
+                return array[index].getGenericType();
+              },
               () -> new Object[array.length],
-              (instance, key, value) -> instance[map.get(key)] = value,
+              (instance, key, value) -> {
+                var index = map.get(key);
+                instance[index] = convertInteger(array[index].getType(), key, value);
+              },
               instance -> Utils.newInstance(constructor, instance)
       );
     }
+
+    /**
+     * Returns a builder of an object of a sealed class or interface.
+     * The first property of the object must be the discriminator {@code "@type"} written by the {@link JSONWriter},
+     * its value selects the subclass in a table computed once per sealed type,
+     * then the object is built by the builder of that subclass.
+     * The returned builder keeps the state of the object, so it should be used to build only one object.
+     *
+     * @param sealedType a sealed class or interface.
+     * @param builderProvider a function that returns the builder of a subclass.
+     * @return a builder of one object of a sealed type.
+     * @throws IllegalArgumentException if the type is not sealed.
+     * @throws IllegalStateException if the hierarchy of the sealed type contains a non-sealed class or interface.
+     */
+    @SuppressWarnings("unchecked")
+    public static ObjectBuilder<Object> sealed(Class<?> sealedType, Function<? super Class<?>, ? extends ObjectBuilder<?>> builderProvider) {
+      Objects.requireNonNull(builderProvider);
+      if (!sealedType.isSealed()) {
+        throw new IllegalArgumentException(sealedType.getName() + " is not sealed");
+      }
+      SealedHierarchy.checkSubclasses(sealedType);
+      var sealedInstance = new SealedInstance();
+      return new ObjectBuilder<>(
+              key -> {
+                if (sealedInstance.objectBuilder == null && key.equals(SealedHierarchy.DISCRIMINATOR)) {
+                  return String.class;
+                }
+                return sealedInstance.objectBuilder(sealedType).typeProvider.apply(key);
+              },
+              () -> sealedInstance,
+              (instance, key, value) -> {
+                if (sealedInstance.objectBuilder == null && key.equals(SealedHierarchy.DISCRIMINATOR)
+                    && value instanceof String typeName) {
+                  var subclass = SealedHierarchy.subclass(sealedType, typeName);
+                  var objectBuilder = (ObjectBuilder<Object>) builderProvider.apply(subclass);
+                  sealedInstance.objectBuilder = objectBuilder;
+                  sealedInstance.instance = objectBuilder.supplier.get();
+                  return;
+                }
+                sealedInstance.objectBuilder(sealedType).populater.populate(sealedInstance.instance, key, value);
+              },
+              instance -> sealedInstance.objectBuilder(sealedType).finisher.apply(sealedInstance.instance)
+      );
+    }
+  }
+
+  /**
+   * The state of an object of a sealed type, the builder of the subclass is known
+   * once the discriminator property has been read.
+   */
+  private static final class SealedInstance {
+    private ObjectBuilder<Object> objectBuilder;
+    private Object instance;
+
+    private ObjectBuilder<Object> objectBuilder(Class<?> sealedType) {
+      if (objectBuilder == null) {
+        throw new IllegalStateException("the first property of " + sealedType.getName() + " should be " +
+            SealedHierarchy.DISCRIMINATOR);
+      }
+      return objectBuilder;
+    }
+  }
+
+  private static String propertyName(RecordComponent component) {
+    var annotation = component.getAnnotation(JSONProperty.class);
+    return annotation != null ? annotation.value() : component.getName();
   }
 
   @FunctionalInterface
@@ -77,17 +256,59 @@ public class JSONReader {
 
   }
   private final ArrayList<TypeMatcher> typeMatchers = new ArrayList<>();
+  // the builders of the subclasses of the sealed types, they depend on the type matchers
+  private final ConcurrentHashMap<Class<?>, ObjectBuilder<?>> subclassBuilders = new ConcurrentHashMap<>();
+  private boolean skipUnknownKeys;
 
   public void addTypeMatcher(TypeMatcher typeMatcher){
     Objects.requireNonNull(typeMatcher);
     typeMatchers.add(typeMatcher);
+    subclassBuilders.clear();
+  }
+
+  /**
+   * Selects what to do with the keys of a JSON text that are not a property of the decoded bean.
+   * If they are skipped, their values, and the objects and arrays they contain, are not decoded,
+   * the parser only counts the brackets, otherwise an unknown key is an error.
+   * It only changes the builder of the beans used when no type matcher matches,
+   * a type matcher can use {@link ObjectBuilder#bean(Class, boolean)} or
+   * {@link ObjectBuilder#record(Class, boolean)}.
+   *
+   * @param skipUnknownKeys true if the unknown keys are skipped, false if they are an error.
+   */
+  public void setSkipUnknownKeys(boolean skipUnknownKeys) {
+    this.skipUnknownKeys = skipUnknownKeys;
+    subclassBuilders.clear();
   }
 
   private ObjectBuilder<?> findObjectBuilder(Type type){
+    return findObjectBuilder(type, true);
+  }
+
+  /**
+   * Finds the builder of a type, if sealedDispatch is false, a concrete sealed class is built
+   * like any other class because its discriminator has already been read.
+   */
+  private ObjectBuilder<?> findObjectBuilder(Type type, boolean sealedDispatch){
     return typeMatchers.reversed().stream()
             .flatMap(typeMatcher -> typeMatcher.match(type).stream())
             .findFirst()
-            .orElseGet(() -> ObjectBuilder.bean(Utils.erase(type)));
+            .orElseGet(() -> {
+              var rawType = Utils.erase(type);
+              if (sealedDispatch && rawType.isSealed()) {
+                return ObjectBuilder.sealed(rawType, this::subclassBuilder);
+              }
+              return ObjectBuilder.bean(rawType, skipUnknownKeys);
+            });
+  }
+
+  private ObjectBuilder<?> subclassBuilder(Class<?> subclass) {
+    var objectBuilder = subclassBuilders.get(subclass);
+    if (objectBuilder == null) {
+      objectBuilder = findObjectBuilder(subclass, false);
+      subclassBuilders.putIfAbsent(subclass, objectBuilder);
+    }
+    return objectBuilder;
   }
 
   private record Context<T>(ObjectBuilder<T> objectBuilder, T result){
@@ -118,13 +339,147 @@ public class JSONReader {
   public Object parseJSON(String text, Type type) {
     Objects.requireNonNull(text);
     Objects.requireNonNull(type);
+    return parse(type, visitor -> ToyJSONParser.parse(text, visitor));
+  }
+
+  /**
+   * Parses a JSON text encoded in UTF-8 without decoding it to a String first.
+   *
+   * @param text the JSON text encoded in UTF-8.
+   * @param type the type of the decoded object.
+   * @return the decoded object.
+   */
+  public Object parseUTF8(byte[] text, Type type) {
+    Objects.requireNonNull(text);
+    Objects.requireNonNull(type);
+    return parse(type, visitor -> ToyJSONParser.parse(text, visitor));
+  }
+
+  public <T> T parseUTF8(byte[] text, Class<T> beanClass) {
+    return beanClass.cast(
+            parseUTF8(text, (Type) beanClass)
+    );
+  }
+
+  /**
+   * Parses a JSON text encoded in UTF-8 between the position and the limit of a buffer,
+   * heap or direct, without decoding it to a String first.
+   * The position of the buffer is not changed.
+   *
+   * @param text the JSON text encoded in UTF-8.
+   * @param type the type of the decoded object.
+   * @return the decoded object.
+   */
+  public Object parseUTF8(ByteBuffer text, Type type) {
+    Objects.requireNonNull(text);
+    Objects.requireNonNull(type);
+    return parse(type, visitor -> ToyJSONParser.parse(text, visitor));
+  }
+
+  public <T> T parseUTF8(ByteBuffer text, Class<T> beanClass) {
+    return beanClass.cast(
+            parseUTF8(text, (Type) beanClass)
+    );
+  }
+
+  /**
+   * Parses a JSON text read from a reader without loading the whole text in memory,
+   * the reader is read into a fixed-size buffer which is refilled.
+   * The reader is not closed.
+   *
+   * @param reader the reader of the JSON text.
+   * @param type the type of the decoded object.
+   * @return the decoded object.
+   * @throws IOException if the reader raises an IOException.
+   */
+  public Object readJSON(Reader reader, Type type) throws IOException {
+    Objects.requireNonNull(reader);
+    Objects.requireNonNull(type);
+    return parseStream(type, visitor -> ToyJSONParser.parse(reader, visitor));
+  }
+
+  public <T> T readJSON(Reader reader, Class<T> beanClass) throws IOException {
+    return beanClass.cast(
+            readJSON(reader, (Type) beanClass)
+    );
+  }
+
+  /**
+   * Parses a JSON text encoded in UTF-8 read from an input stream without loading the whole text in memory,
+   * the input stream is read into a fixed-size buffer which is refilled.
+   * The input stream is not closed.
+   *
+   * @param inputStream the input stream of the JSON text encoded in UTF-8.
+   * @param type the type of the decoded object.
+   * @return the decoded object.
+   * @throws IOException if the input stream raises an IOException.
+   */
+  public Object readJSON(InputStream inputStream, Type type) throws IOException {
+    Objects.requireNonNull(inputStream);
+    Objects.requireNonNull(type);
+    return parseStream(type, visitor -> ToyJSONParser.parse(inputStream, visitor));
+  }
+
+  public <T> T readJSON(InputStream inputStream, Class<T> beanClass) throws IOException {
+    return beanClass.cast(
+            readJSON(inputStream, (Type) beanClass)
+    );
+  }
+
+  @FunctionalInterface
+  private interface StreamParser {
+    void parse(ToyJSONParser.JSONVisitor visitor) throws IOException;
+  }
+
+  private Object parseStream(Type type, StreamParser parser) throws IOException {
+    try {
+      return parse(type, visitor -> {
+        try {
+          parser.parse(visitor);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Decodes a <a href="https://www.rfc-editor.org/rfc/rfc8949.html">CBOR</a> data item,
+   * by example created by {@link CBORWriter#toCBOR(Object)}, using the same type matchers
+   * as {@link #parseJSON(String, Type)}.
+   *
+   * @param data the CBOR data item.
+   * @param type the type of the decoded object.
+   * @return the decoded object.
+   */
+  public Object parseCBOR(byte[] data, Type type) {
+    Objects.requireNonNull(data);
+    Objects.requireNonNull(type);
+    return parse(type, visitor -> CBORParser.parse(data, visitor));
+  }
+
+  public <T> T parseCBOR(byte[] data, Class<T> beanClass) {
+    return beanClass.cast(
+            parseCBOR(data, (Type) beanClass)
+    );
+  }
+
+  private Object parse(Type type, Consumer<? super ToyJSONParser.JSONVisitor> parser) {
+    return parse(() -> findObjectBuilder(type), parser);
+  }
+
+  private Object parse(Supplier<? extends ObjectBuilder<?>> rootBuilder, Consumer<? super ToyJSONParser.JSONVisitor> parser) {
     var stack = new ArrayDeque<Context<?>>();
     var visitor = new ToyJSONParser.JSONVisitor() {
       private Object result;
+      private Type valueType;  // type of the next value computed by skip(), null if not computed
 
       @Override
       public void value(String key, Object value) {
         // call the corresponding setter on result
+        valueType = null;
         var currentContext = stack.peek();
         currentContext.populate(key, value);
       }
@@ -133,10 +488,10 @@ public class JSONReader {
       public void startObject(String key) {
         // get the beanData
         var currentContext = stack.peek();
-        var theType = currentContext == null ?
-                type:
-                currentContext.objectBuilder.typeProvider().apply(key);
-        var objectBuilder = findObjectBuilder(theType);
+        var objectBuilder = currentContext == null ?
+                rootBuilder.get():
+                findObjectBuilder(valueType != null ? valueType : currentContext.objectBuilder.typeProvider().apply(key));
+        valueType = null;
         stack.push(Context.createContext(objectBuilder));
       }
 
@@ -152,6 +507,21 @@ public class JSONReader {
         }
       }
 
+      @Override
+      public boolean skip(String key) {
+        if (key == null) {
+          return false;
+        }
+        var currentContext = stack.peek();
+        var type = currentContext.objectBuilder.typeProvider().apply(key);
+        if (type == ObjectBuilder.SKIP) {
+          valueType = null;
+          return true;
+        }
+        valueType = type;
+        return false;
+      }
+
       @Override
       public void startArray(String key) {
         startObject(key);
@@ -162,10 +532,194 @@ public class JSONReader {
         endObject(key);
       }
     };
-    ToyJSONParser.parse(text, visitor);
+    parser.accept(visitor);
     return visitor.result;
   }
 
+  /**
+   * Decodes the values of a JSON text selected by a path, the values that can not be selected
+   * are skipped without being decoded.
+   *
+   * @param text the JSON text.
+   * @param path the path that selects the values.
+   * @param type the type of the selected values.
+   * @return an unmodifiable list of the decoded values in the order of the JSON text.
+   */
+  public List<Object> select(String text, JSONPath path, Type type) {
+    Objects.requireNonNull(text);
+    Objects.requireNonNull(path);
+    Objects.requireNonNull(type);
+    var listBuilder = new ObjectBuilder<ArrayList<Object>>(
+        key -> type,
+        ArrayList::new,
+        (instance, key, value) -> instance.add(value),
+        Collections::unmodifiableList
+    );
+    @SuppressWarnings("unchecked")
+    var list = (List<Object>) parse(() -> listBuilder, visitor -> ToyJSONParser.parse(text, path.filter(visitor)));
+    return list;
+  }
+
+  public <T> List<T> select(String text, JSONPath path, Class<T> type) {
+    return select(text, path, (Type) type).stream()
+        .map(type::cast)
+        .toList();
+  }
+
+  /**
+   * Decodes the lines of a text encoded in UTF-8 in <a href="https://github.com/ndjson/ndjson-spec">NDJSON</a>,
+   * each line being an object or an array, the blank lines are ignored.
+   *
+   * The returned stream is parallel, the text is split at the newlines and the lines are decoded
+   * by the threads of the common {@link java.util.concurrent.ForkJoinPool}.
+   * The stream is ordered like the lines, call {@link Stream#unordered()} if the order is not needed.
+   * The type matchers should not be changed while the stream is consumed.
+   *
+   * @param text the lines encoded in UTF-8.
+   * @param type the type of the decoded objects.
+   * @return a parallel stream of the decoded objects.
+   */
+  public Stream<Object> parseNdjson(byte[] text, Type type) {
+    Objects.requireNonNull(text);
+    return parseNdjson(ByteBuffer.wrap(text), type);
+  }
+
+  public <T> Stream<T> parseNdjson(byte[] text, Class<T> beanClass) {
+    return parseNdjson(text, (Type) beanClass).map(beanClass::cast);
+  }
+
+  /**
+   * Decodes the lines between the position and the limit of a buffer, heap or direct,
+   * by example a file mapped in memory, like {@link #parseNdjson(byte[], Type)}.
+   * The position of the buffer is not changed.
+   *
+   * @param text the lines encoded in UTF-8.
+   * @param type the type of the decoded objects.
+   * @return a parallel stream of the decoded objects.
+   */
+  public Stream<Object> parseNdjson(ByteBuffer text, Type type) {
+    Objects.requireNonNull(text);
+    Objects.requireNonNull(type);
+    var buffer = text.slice();
+    var spliterator = new NdjsonSpliterator<>(buffer, 0, buffer.limit(), (start, end) -> {
+      try {
+        return parse(type, visitor -> ToyJSONParser.parse(buffer.slice(start, end - start), visitor));
+      } catch (IllegalStateException e) {
+        throw new IllegalStateException("invalid line at " + start, e);
+      }
+    });
+    return StreamSupport.stream(spliterator, true);
+  }
+
+  public <T> Stream<T> parseNdjson(ByteBuffer text, Class<T> beanClass) {
+    return parseNdjson(text, (Type) beanClass).map(beanClass::cast);
+  }
+
+  /**
+   * Decodes the elements of a JSON array encoded in UTF-8, each element being an object or an array.
+   *
+   * The top-level elements are first found by a quick scan of the text that only looks at
+   * the brackets, the commas and the quotes (see {@link StructuralIndexer}), then the returned stream,
+   * which is parallel, decodes the elements using the threads of the common {@link java.util.concurrent.ForkJoinPool}.
+   * The stream is ordered like the elements, call {@link Stream#unordered()} if the order is not needed.
+   * The type matchers should not be changed while the stream is consumed.
+   *
+   * @param text a JSON array encoded in UTF-8.
+   * @param elementType the type of the decoded elements.
+   * @return a parallel stream of the decoded elements.
+   * @throws IllegalStateException if the text is not an array.
+   */
+  public Stream<Object> parseJSONArray(byte[] text, Type elementType) {
+    Objects.requireNonNull(text);
+    Objects.requireNonNull(elementType);
+    var bounds = arrayElementBounds(text);
+    return IntStream.range(0, bounds.length / 2)
+        .parallel()
+        .mapToObj(i -> {
+          var start = bounds[2 * i];
+          var end = bounds[2 * i + 1];
+          try {
+            return parse(elementType, visitor -> ToyJSONParser.parse(ByteBuffer.wrap(text, start, end - start), visitor));
+          } catch (IllegalStateException e) {
+            throw new IllegalStateException("invalid element at " + start, e);
+          }
+        });
+  }
+
+  public <T> Stream<T> parseJSONArray(byte[] text, Class<T> elementClass) {
+    return parseJSONArray(text, (Type) elementClass).map(elementClass::cast);
+  }
+
+  /**
+   * Returns the start and the end of each top-level element of a JSON array.
+   * The elements themselves are not checked, they are checked when they are decoded.
+   */
+  private static int[] arrayElementBounds(byte[] text) {
+    var classifier = StructuralIndexer.VECTORIZED ? StructuralIndexer.vectorClassifier() : StructuralIndexer.SCALAR;
+    var indexer = new StructuralIndexer(text, 0, text.length, classifier);
+    var positions = new int[1_024];
+    var bounds = new int[16];
+    var count = 0;
+    var depth = 0;
+    var elementStart = -1;
+    var closed = false;
+    int size;
+    while ((size = indexer.index(positions)) != 0) {
+      for (var i = 0; i < size; i++) {
+        var position = positions[i];
+        var letter = text[position];
+        if (closed) {
+          throw new IllegalStateException("unexpected trailing content at " + position);
+        }
+        if (depth == 0) {
+          if (letter != '[') {
+            throw new IllegalStateException("expect an array at " + position);
+          }
+          depth = 1;
+          continue;
+        }
+        switch (letter) {
+          case ',', ']', '}' -> {
+            if (letter != ',') {
+              depth--;
+            }
+            if (depth > 1 || (depth == 1 && letter != ',')) {
+              continue;
+            }
+            if (depth == 0 && letter != ']') {
+              throw new IllegalStateException("expect ] at " + position);
+            }
+            if (elementStart == -1) {
+              if (letter == ',' || count != 0) {
+                throw new IllegalStateException("expect a value at " + position);
+              }
+            } else {
+              if (count == bounds.length) {
+                bounds = Arrays.copyOf(bounds, count << 1);
+              }
+              bounds[count++] = elementStart;
+              bounds[count++] = position;
+              elementStart = -1;
+            }
+            closed = depth == 0;
+          }
+          default -> {
+            if (depth == 1 && elementStart == -1) {
+              elementStart = position;
+            }
+            if (letter == '[' || letter == '{') {
+              depth++;
+            }
+          }
+        }
+      }
+    }
+    if (!closed) {
+      throw new IllegalStateException("unexpected end of the array");
+    }
+    return Arrays.copyOf(bounds, count);
+  }
+
   public <T> T parseJSON(String text, Class<T> beanClass) {
     return beanClass.cast(
             parseJSON(text, (Type) beanClass)
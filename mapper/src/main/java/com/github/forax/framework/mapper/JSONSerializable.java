@@ -0,0 +1,16 @@
+package com.github.forax.framework.mapper;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Asks the {@link JSONSerializerProcessor} to generate a {@link JSONSerializer} for the annotated
+ * bean or record at compile time.
+ * A serializer is also generated for the beans and records that use {@link JSONProperty}.
+ */
+@Retention(SOURCE)
+@Target(TYPE)
+public @interface JSONSerializable { }
@@ -0,0 +1,47 @@
+package com.github.forax.framework.mapper;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The properties of a bean or a record computed at compile time by the {@link JSONSerializerProcessor}.
+ *
+ * For a class {@code com.acme.Person}, the generated class is named {@code com.acme.Person_JSONSerializer}
+ * (the binary name of the class followed by {@value #SUFFIX}), the {@link JSONWriter} uses it instead
+ * of introspecting the class.
+ */
+public interface JSONSerializer {
+  /**
+   * Suffix of the name of the generated classes.
+   */
+  String SUFFIX = "_JSONSerializer";
+
+  /**
+   * A property of a bean or a record.
+   *
+   * @param name the name of the property in the JSON text.
+   * @param getter a function that returns the value of the property.
+   * @param views the views of the property, empty if the property is part of all the views.
+   *
+   * @see JSONView
+   */
+  record Property(String name, Function<Object, Object> getter, Set<String> views) {
+    public Property {
+      Objects.requireNonNull(name);
+      Objects.requireNonNull(getter);
+      views = Set.copyOf(views);
+    }
+
+    public Property(String name, Function<Object, Object> getter) {
+      this(name, getter, Set.of());
+    }
+  }
+
+  /**
+   * Returns the properties in the order they should be written.
+   * @return the properties in the order they should be written.
+   */
+  List<Property> properties();
+}
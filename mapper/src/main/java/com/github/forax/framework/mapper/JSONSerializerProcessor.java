@@ -0,0 +1,174 @@
+package com.github.forax.framework.mapper;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.beans.Introspector;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Annotation processor that generates a {@link JSONSerializer} for the beans and records
+ * annotated with {@link JSONSerializable} or using {@link JSONProperty} or {@link JSONView}.
+ *
+ * The properties are computed with the same rules as the {@link JSONWriter},
+ * the record components in declaration order, the bean getters sorted by property name.
+ * Local, anonymous and private classes can not be referenced by a generated class, so they are skipped.
+ */
+@SupportedAnnotationTypes({
+    "com.github.forax.framework.mapper.JSONSerializable",
+    "com.github.forax.framework.mapper.JSONProperty",
+    "com.github.forax.framework.mapper.JSONView"
+})
+public class JSONSerializerProcessor extends AbstractProcessor {
+  private record PropertyInfo(String name, String accessor, List<String> views) { }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    var types = new LinkedHashSet<TypeElement>();
+    for (var annotation : annotations) {
+      for (var element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        var type = enclosingType(element);
+        if (type != null) {
+          types.add(type);
+        }
+      }
+    }
+    types.stream()
+        .filter(JSONSerializerProcessor::isAccessible)
+        .forEach(this::generate);
+    return false;
+  }
+
+  private static TypeElement enclosingType(Element element) {
+    return switch (element.getKind()) {
+      case CLASS, RECORD -> (TypeElement) element;
+      case METHOD, RECORD_COMPONENT -> enclosingType(element.getEnclosingElement());
+      default -> null;
+    };
+  }
+
+  private static boolean isAccessible(TypeElement type) {
+    for (Element element = type; element instanceof TypeElement typeElement; element = element.getEnclosingElement()) {
+      if (typeElement.getNestingKind() == NestingKind.LOCAL || typeElement.getNestingKind() == NestingKind.ANONYMOUS
+          || typeElement.getModifiers().contains(Modifier.PRIVATE)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private List<PropertyInfo> properties(TypeElement type) {
+    if (type.getKind() == ElementKind.RECORD) {
+      return type.getRecordComponents().stream()
+          .map(component -> new PropertyInfo(propertyName(component, component.getSimpleName().toString()),
+              component.getSimpleName() + "()", views(component)))
+          .toList();
+    }
+    // same order as the Introspector, sorted by property name
+    var propertyMap = new TreeMap<String, PropertyInfo>();
+    ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type)).stream()
+        .filter(method -> method.getModifiers().contains(Modifier.PUBLIC) && !method.getModifiers().contains(Modifier.STATIC))
+        .filter(method -> method.getParameters().isEmpty() && method.getTypeParameters().isEmpty())
+        .filter(method -> !method.getSimpleName().contentEquals("getClass"))
+        .forEach(method -> {
+          var beanName = beanPropertyName(method);
+          if (beanName != null) {
+            propertyMap.putIfAbsent(beanName, new PropertyInfo(propertyName(method, beanName), method.getSimpleName() + "()", views(method)));
+          }
+        });
+    return List.copyOf(propertyMap.values());
+  }
+
+  private static String beanPropertyName(ExecutableElement method) {
+    var name = method.getSimpleName().toString();
+    var returnType = method.getReturnType();
+    if (name.startsWith("get") && name.length() > 3 && returnType.getKind() != TypeKind.VOID) {
+      return Introspector.decapitalize(name.substring(3));
+    }
+    if (name.startsWith("is") && name.length() > 2 && returnType.getKind() == TypeKind.BOOLEAN) {
+      return Introspector.decapitalize(name.substring(2));
+    }
+    return null;
+  }
+
+  private static String propertyName(Element element, String defaultName) {
+    var annotation = element.getAnnotation(JSONProperty.class);
+    return annotation != null ? annotation.value() : defaultName;
+  }
+
+  private static List<String> views(Element element) {
+    var annotation = element.getAnnotation(JSONView.class);
+    return annotation != null ? Arrays.stream(annotation.value()).distinct().toList() : List.of();
+  }
+
+  private String views(List<String> views) {
+    if (views.isEmpty()) {
+      return "";
+    }
+    var elements = processingEnv.getElementUtils();
+    return views.stream()
+        .map(elements::getConstantExpression)
+        .collect(Collectors.joining(", ", ", java.util.Set.of(", ")"));
+  }
+
+  private void generate(TypeElement type) {
+    var elements = processingEnv.getElementUtils();
+    var packageName = elements.getPackageOf(type).getQualifiedName().toString();
+    var binaryName = elements.getBinaryName(type).toString();
+    var simpleName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1) + JSONSerializer.SUFFIX;
+    var typeName = type.getQualifiedName() + (type.getTypeParameters().isEmpty() ? "" :
+        type.getTypeParameters().stream().map(__ -> "?").collect(Collectors.joining(", ", "<", ">")));
+    var properties = properties(type).stream()
+        .map(property -> "        new JSONSerializer.Property(" + elements.getConstantExpression(property.name) +
+            ", o -> ((" + typeName + ") o)." + property.accessor + views(property.views) + ")")
+        .collect(Collectors.joining(",\n"));
+    var source = """
+        %s
+        import com.github.forax.framework.mapper.JSONSerializer;
+        import java.util.List;
+        
+        @javax.annotation.processing.Generated("%s")
+        public final class %s implements JSONSerializer {
+          @Override
+          public List<JSONSerializer.Property> properties() {
+            return List.of(
+        %s
+            );
+          }
+        }
+        """.formatted(
+            packageName.isEmpty() ? "" : "package " + packageName + ";\n",
+            JSONSerializerProcessor.class.getName(),
+            simpleName,
+            properties);
+    try {
+      var file = processingEnv.getFiler().createSourceFile(binaryName + JSONSerializer.SUFFIX, type);
+      try (var writer = file.openWriter()) {
+        writer.write(source);
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "can not generate serializer: " + e.getMessage(), type);
+    }
+  }
+}
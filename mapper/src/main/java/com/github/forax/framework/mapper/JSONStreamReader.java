@@ -0,0 +1,341 @@
+package com.github.forax.framework.mapper;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A pull parser of a JSON text, the caller asks for the next element with {@link #next()}
+ * instead of being called back like with a {@link ToyJSONParser.JSONVisitor}.
+ *
+ * <pre>
+ * var reader = JSONStreamReader.of(text);
+ * reader.next();  // START_OBJECT
+ * while (reader.next() != JSONStreamReader.Kind.END_OBJECT) {
+ *   switch (reader.currentKey()) {
+ *     case "id" -> id = reader.intValue();
+ *     case "name" -> name = reader.stringValue();
+ *     default -> reader.skipChildren();
+ *   }
+ * }
+ * </pre>
+ *
+ * Reading a number or a boolean does not allocate, the value of the current element is only available
+ * until the next call to {@link #next()}.
+ * The JSON text is scanned by the same lexer as {@link ToyJSONParser}, if the JSON text is read
+ * from a {@link Reader} or an {@link InputStream}, an {@link java.io.UncheckedIOException} wraps
+ * the IOException.
+ */
+public final class JSONStreamReader {
+  /**
+   * Kind of the elements of a JSON text.
+   */
+  public enum Kind {
+    START_OBJECT,
+    END_OBJECT,
+    START_ARRAY,
+    END_ARRAY,
+    STRING,
+    INTEGER,
+    DOUBLE,
+    TRUE,
+    FALSE,
+    NULL,
+    /**
+     * The end of the first object or array, the rest of the JSON text is not read.
+     */
+    END_DOCUMENT
+  }
+
+  private static final byte OBJECT = 1, ARRAY = 2;
+
+  private final JSONLexer lexer;
+  private byte[] containers = new byte[16];
+  private String[] keys = new String[16];
+  private int depth;
+  private boolean first;
+  private Kind kind;
+  private String key;
+
+  JSONStreamReader(JSONLexer lexer) {
+    this.lexer = lexer;
+  }
+
+  /**
+   * Creates a reader of a JSON text.
+   * @param text a JSON text.
+   * @return a reader of a JSON text.
+   */
+  public static JSONStreamReader of(String text) {
+    Objects.requireNonNull(text);
+    return new JSONStreamReader(new JSONLexer.CharLexer(text.toCharArray()));
+  }
+
+  /**
+   * Creates a reader of a JSON text encoded in UTF-8.
+   * @param text a JSON text encoded in UTF-8.
+   * @return a reader of a JSON text.
+   */
+  public static JSONStreamReader of(byte[] text) {
+    Objects.requireNonNull(text);
+    return new JSONStreamReader(JSONLexer.utf8(text, 0, text.length));
+  }
+
+  /**
+   * Creates a reader of a JSON text read from a reader into a fixed-size buffer, the reader is not closed.
+   * @param reader a reader of a JSON text.
+   * @return a reader of a JSON text.
+   */
+  public static JSONStreamReader of(Reader reader) {
+    Objects.requireNonNull(reader);
+    return new JSONStreamReader(new JSONLexer.CharLexer(reader, JSONLexer.BUFFER_CAPACITY));
+  }
+
+  /**
+   * Creates a reader of a JSON text encoded in UTF-8 read from an input stream into a fixed-size buffer,
+   * the input stream is not closed.
+   * @param inputStream an input stream of a JSON text encoded in UTF-8.
+   * @return a reader of a JSON text.
+   */
+  public static JSONStreamReader of(InputStream inputStream) {
+    Objects.requireNonNull(inputStream);
+    return new JSONStreamReader(new JSONLexer.Utf8Lexer(inputStream, JSONLexer.BUFFER_CAPACITY));
+  }
+
+  /**
+   * Moves to the next element of the JSON text.
+   * @return the kind of the element.
+   * @throws IllegalStateException if the JSON text is not valid.
+   */
+  public Kind next() {
+    if (kind == null) {
+      return kind = switch (lexer.next()) {
+        case LEFT_CURLY -> push(OBJECT, Kind.START_OBJECT);
+        case LEFT_BRACKET -> push(ARRAY, Kind.START_ARRAY);
+        default -> throw lexer.error(JSONLexer.Kind.LEFT_CURLY, JSONLexer.Kind.LEFT_BRACKET);
+      };
+    }
+    if (depth == 0) {
+      key = null;
+      return kind = Kind.END_DOCUMENT;
+    }
+    var lexer = this.lexer;
+    var token = lexer.next();
+    var firstOfArray = false;
+    if (containers[depth - 1] == OBJECT) {
+      if (token == JSONLexer.Kind.RIGHT_CURLY) {
+        return kind = pop(Kind.END_OBJECT);
+      }
+      if (first) {
+        first = false;
+      } else {
+        lexer.expect(JSONLexer.Kind.COMMA);
+        lexer.next();
+      }
+      lexer.expect(JSONLexer.Kind.STRING);
+      key = lexer.text();
+      lexer.next();
+      lexer.expect(JSONLexer.Kind.COLON);
+      lexer.next();
+    } else {
+      if (token == JSONLexer.Kind.RIGHT_BRACKET) {
+        return kind = pop(Kind.END_ARRAY);
+      }
+      if (first) {
+        first = false;
+        firstOfArray = true;
+      } else {
+        lexer.expect(JSONLexer.Kind.COMMA);
+        lexer.next();
+      }
+      key = null;
+    }
+    return kind = switch (lexer.kind) {
+      case NULL -> Kind.NULL;
+      case FALSE -> Kind.FALSE;
+      case TRUE -> Kind.TRUE;
+      case INTEGER -> Kind.INTEGER;
+      case DOUBLE -> Kind.DOUBLE;
+      case STRING -> Kind.STRING;
+      case LEFT_CURLY -> push(OBJECT, Kind.START_OBJECT);
+      case LEFT_BRACKET -> push(ARRAY, Kind.START_ARRAY);
+      default -> throw lexer.valueError(firstOfArray);
+    };
+  }
+
+  private Kind push(byte container, Kind kind) {
+    if (depth == containers.length) {
+      containers = Arrays.copyOf(containers, depth << 1);
+      keys = Arrays.copyOf(keys, depth << 1);
+    }
+    containers[depth] = container;
+    keys[depth] = key;
+    depth++;
+    first = true;
+    return kind;
+  }
+
+  private Kind pop(Kind kind) {
+    depth--;
+    key = keys[depth];
+    keys[depth] = null;
+    first = false;
+    return kind;
+  }
+
+  /**
+   * Skips the content of the current object or array, the current element becomes its end.
+   * The skipped content is not decoded and only the balance of the brackets is checked,
+   * each closing bracket should match the kind of the opening one.
+   * Does nothing if the current element is not the start of an object or an array.
+   */
+  public void skipChildren() {
+    if (kind != Kind.START_OBJECT && kind != Kind.START_ARRAY) {
+      return;
+    }
+    var lexer = this.lexer;
+    // the skipped objects and arrays are pushed above the open ones without their keys
+    var level = depth;
+    while (level != depth - 1) {
+      switch (lexer.next()) {
+        case LEFT_CURLY, LEFT_BRACKET -> {
+          if (level == containers.length) {
+            containers = Arrays.copyOf(containers, level << 1);
+            keys = Arrays.copyOf(keys, level << 1);
+          }
+          containers[level++] = lexer.kind == JSONLexer.Kind.LEFT_CURLY ? OBJECT : ARRAY;
+        }
+        case RIGHT_CURLY -> {
+          if (containers[--level] != OBJECT) {
+            throw lexer.error(JSONLexer.Kind.RIGHT_BRACKET);
+          }
+        }
+        case RIGHT_BRACKET -> {
+          if (containers[--level] != ARRAY) {
+            throw lexer.error(JSONLexer.Kind.RIGHT_CURLY);
+          }
+        }
+        default -> {}
+      }
+    }
+    kind = pop(kind == Kind.START_OBJECT ? Kind.END_OBJECT : Kind.END_ARRAY);
+  }
+
+  /**
+   * Returns the kind of the current element or null if {@link #next()} has not been called.
+   * @return the kind of the current element.
+   */
+  public Kind currentKind() {
+    return kind;
+  }
+
+  /**
+   * Returns the key of the current element if it is inside an object, {@code null} otherwise.
+   * For the end of an object or an array, the key is the key of the object or the array.
+   * @return the key of the current element or {@code null}.
+   */
+  public String currentKey() {
+    return key;
+  }
+
+  /**
+   * Returns the number of objects and arrays that are open,
+   * it includes the current element if it is the start of an object or an array.
+   * @return the number of objects and arrays that are open.
+   */
+  public int depth() {
+    return depth;
+  }
+
+  private void checkKind(Kind expected) {
+    if (kind != expected) {
+      throw new IllegalStateException("current element is not a " + expected + " but a " + kind + " at " + lexer.location);
+    }
+  }
+
+  /**
+   * Returns the text of the current string.
+   * @return the text of the current string.
+   * @throws IllegalStateException if the current element is not a string.
+   */
+  public String stringValue() {
+    checkKind(Kind.STRING);
+    return lexer.text();
+  }
+
+  /**
+   * Returns the value of the current boolean.
+   * @return the value of the current boolean.
+   * @throws IllegalStateException if the current element is not a boolean.
+   */
+  public boolean booleanValue() {
+    if (kind != Kind.TRUE && kind != Kind.FALSE) {
+      checkKind(Kind.TRUE);
+    }
+    return kind == Kind.TRUE;
+  }
+
+  /**
+   * Returns the value of the current integer.
+   * @return the value of the current integer.
+   * @throws IllegalStateException if the current element is not an integer or does not fit in a long.
+   */
+  public long longValue() {
+    checkKind(Kind.INTEGER);
+    try {
+      return lexer.longValue();
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException("invalid integer at " + lexer.location, e);
+    }
+  }
+
+  /**
+   * Returns the value of the current integer.
+   * @return the value of the current integer.
+   * @throws IllegalStateException if the current element is not an integer or does not fit in an int.
+   */
+  public int intValue() {
+    var value = longValue();
+    if ((int) value != value) {
+      throw new IllegalStateException("integer " + value + " does not fit in an int at " + lexer.location);
+    }
+    return (int) value;
+  }
+
+  /**
+   * Returns the value of the current number, an integer or a double.
+   * @return the value of the current number.
+   * @throws IllegalStateException if the current element is not a number.
+   */
+  public double doubleValue() {
+    if (kind == Kind.INTEGER) {
+      return longValue();
+    }
+    checkKind(Kind.DOUBLE);
+    try {
+      return lexer.doubleValue();
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException("invalid double at " + lexer.location, e);
+    }
+  }
+
+  /**
+   * Returns the value of the current string, number, boolean or null as an object,
+   * an integer is an Integer if it fits in an int, a Long otherwise.
+   */
+  Object value() {
+    return switch (kind) {
+      case STRING -> lexer.text();
+      case INTEGER -> {
+        var value = longValue();
+        yield (int) value == value ? (Object) (int) value : (Object) value;
+      }
+      case DOUBLE -> doubleValue();
+      case TRUE -> true;
+      case FALSE -> false;
+      case NULL -> null;
+      default -> throw new IllegalStateException("current element is not a value but a " + kind + " at " + lexer.location);
+    };
+  }
+}
@@ -0,0 +1,19 @@
+package com.github.forax.framework.mapper;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.RECORD_COMPONENT;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Restricts a property to some views, a property without this annotation is part of all the views.
+ *
+ * @see JSONWriter#setView(String)
+ */
+@Retention(RUNTIME)
+@Target({METHOD, RECORD_COMPONENT})
+public @interface JSONView {
+  String[] value();
+}
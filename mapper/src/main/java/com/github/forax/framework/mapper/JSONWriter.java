@@ -2,66 +2,706 @@ package com.github.forax.framework.mapper;
 
 import java.beans.IntrospectionException;
 import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousByteChannel;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
-import java.util.stream.Collectors;
+import java.util.HashMap;
 import java.lang.ClassValue;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.lang.invoke.MethodType.methodType;
 public final class JSONWriter {
+  /**
+   * A property of a bean or a record.
+   *
+   * @param name the name of the property in the JSON text.
+   * @param getter the getter typed (Object)Object.
+   * @param views the views of the property, empty if the property is part of all the views.
+   */
+  record Property(String name, MethodHandle getter, Set<String> views) {
+    boolean isPartOf(String view) {
+      return views.isEmpty() || views.contains(view);
+    }
+
+    Object value(Object bean) {
+      try {
+        return (Object) getter.invokeExact(bean);
+      } catch (Throwable t) {
+        throw Utils.rethrow(t);
+      }
+    }
+
+    JSONOutput.Fragment key(String prefix) {
+      var output = new JSONOutput.CharOutput();
+      output.append(prefix);
+      output.appendString(name);
+      output.append(": ");
+      try {
+        return JSONOutput.Fragment.of(output.toString());
+      } finally {
+        output.release();
+      }
+    }
+  }
+
+  private static final MethodHandle FUNCTION_APPLY;
+  static {
+    try {
+      FUNCTION_APPLY = MethodHandles.publicLookup().findVirtual(Function.class, "apply", methodType(Object.class, Object.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static final ClassValue<List<Property>> PROPERTIES = new ClassValue<>() {
+    @Override
+    protected List<Property> computeValue(Class<?> type) {
+      var properties = declaredProperties(type);
+      return SealedHierarchy.discriminator(type)
+          .map(typeName -> {
+            var getter = MethodHandles.dropArguments(MethodHandles.constant(Object.class, typeName), 0, Object.class);
+            return Stream.concat(Stream.of(new Property(SealedHierarchy.DISCRIMINATOR, getter, Set.of())), properties.stream()).toList();
+          })
+          .orElse(properties);
+    }
+  };
+
+  private static List<Property> declaredProperties(Class<?> type) {
+    var serializer = generatedSerializer(type);
+    if (serializer.isPresent()) {
+      return serializer.orElseThrow().properties().stream()
+          .map(property -> new Property(property.name(), FUNCTION_APPLY.bindTo(property.getter()), property.views()))
+          .toList();
+    }
+    List<PropertyDescriptor> list = type.isRecord() ? recordProperties(type) : beanProperties(type);
+  	
+    return list.stream()
+            .filter(property -> !property.getName().equals("class"))
+            .filter(property -> property.getReadMethod() != null)
+            .map(property ->{
+              var method = property.getReadMethod();
+              var annotation = method.getAnnotation(JSONProperty.class);
+              var  name = annotation != null? annotation.value() : property.getName();
+              var viewAnnotation = method.getAnnotation(JSONView.class);
+              var views = viewAnnotation != null ? Set.copyOf(Arrays.asList(viewAnnotation.value())) : Set.<String>of();
+              var getter = Utils.unreflect(method).asType(methodType(Object.class, Object.class));
+              return new Property(name, getter, views);
+            })
+            .toList();
+  }
+
+  /**
+   * The generators of the beans and records for a view, computed once per class.
+   * The view {@code null} contains all the properties.
+   */
+  private static final class View {
+    private final ClassValue<List<Property>> properties;
+    private final ClassValue<Generator> cache;
+    private final ClassValue<Generator> compiledCache;
+    private final ClassValue<SizeEstimate> sizeEstimates = new ClassValue<>() {
+      @Override
+      protected SizeEstimate computeValue(Class<?> type) {
+        return new SizeEstimate();
+      }
+    };
+
+    private View(String view) {
+      properties = new ClassValue<>() {
+        @Override
+        protected List<Property> computeValue(Class<?> type) {
+          var properties = PROPERTIES.get(type);
+          if (view == null) {
+            return properties;
+          }
+          return properties.stream().filter(property -> property.isPartOf(view)).toList();
+        }
+      };
+      cache = new ClassValue<>() {
+        @Override
+        protected Generator computeValue(Class<?> type) {
+          var properties = View.this.properties.get(type);
+          var keys = properties.stream().map(property -> property.key("")).toList();
+          return (writer, o, output) -> {
+            output.append('{');
+            for (var i = 0; i < properties.size(); i++) {
+              if (i != 0) {
+                output.append(", ");
+              }
+              output.append(keys.get(i));
+              writer.write(properties.get(i).value(o), output);
+            }
+            output.append('}');
+          };
+        }
+      };
+      compiledCache = new ClassValue<>() {
+        @Override
+        protected Generator computeValue(Class<?> type) {
+          return GeneratorCompiler.compile(properties.get(type)).orElseGet(() -> cache.get(type));
+        }
+      };
+    }
+
+    Generator generator(Class<?> type, boolean compiledMode) {
+      return compiledMode ? compiledCache.get(type) : cache.get(type);
+    }
+
+    SizeEstimate sizeEstimate(Class<?> type) {
+      return sizeEstimates.get(type);
+    }
+  }
+
+  private static final View ALL_PROPERTIES = new View(null);
+  private static final ConcurrentHashMap<String, View> VIEWS = new ConcurrentHashMap<>();
+
+  private static final int MIN_CHUNK_SIZE = 256;
+  private static final int NDJSON_CAPACITY = 1 << 16;
+  private static final int ASYNC_BUFFER_CAPACITY = 1 << 16;
 
-  private static final ClassValue<List<Generator>> CACHE = new ClassValue<>() {
+  /**
+   * The generators shared by all the writers, they do not reference a writer
+   * so a class does not keep a writer alive.
+   */
+  private static final ClassValue<Generator> GENERATORS = new ClassValue<>() {
     @Override
-    protected List<Generator> computeValue(Class<?> type) {
-      List<PropertyDescriptor> list = type.isRecord() ? recordProperties(type) : beanProperties(type);
-    	
-      return list.stream()
-              .filter(property -> !property.getName().equals("class"))
-              .<Generator>map(property ->{
-                var method = property.getReadMethod();
-                var annotation = method.getAnnotation(JSONProperty.class);
-                var  name = annotation != null? annotation.value() : property.getName();
-                var key = "\"" + name + "\": ";
-                return ((writer, o) -> {
-                  return key + writer.toJSON(Utils.invokeMethod(o, method));
-                });
-              })
-              .toList();
+    protected Generator computeValue(Class<?> type) {
+      return Generators.builtin(type).orElse(JSONWriter::toJsonBean);
     }
   };
+
+  // the generators of the classes configured with configure(), checked before the shared ones
+  private final HashMap<Class<?>, Generator> configuredGenerators = new HashMap<>();
+
+  private View view = ALL_PROPERTIES;
+  private boolean compiledMode;
+  private int parallelThreshold = Integer.MAX_VALUE;
+  private RecordCache recordCache;
   
+  /**
+   * Returns the properties of a bean or a record, in the order they are written.
+   * @param type a bean or a record class.
+   * @return the properties of a bean or a record.
+   */
+  static List<Property> properties(Class<?> type) {
+    return PROPERTIES.get(type);
+  }
+
+  /**
+   * Returns the serializer generated by the {@link JSONSerializerProcessor} for a type if it exists.
+   */
+  private static Optional<JSONSerializer> generatedSerializer(Class<?> type) {
+    var classLoader = type.getClassLoader();
+    if (classLoader == null) {  // JDK classes
+      return Optional.empty();
+    }
+    Class<?> serializerClass;
+    try {
+      serializerClass = Class.forName(type.getName() + JSONSerializer.SUFFIX, true, classLoader);
+    } catch (ClassNotFoundException e) {
+      return Optional.empty();
+    }
+    if (!JSONSerializer.class.isAssignableFrom(serializerClass)) {
+      return Optional.empty();
+    }
+    return Optional.of((JSONSerializer) Utils.newInstance(Utils.defaultConstructor(serializerClass)));
+  }
+
   private static List<PropertyDescriptor> beanProperties(Class<?> type) {
     return Arrays.stream(Utils.beanInfo(type).getPropertyDescriptors()).toList();
   }
 
   private static List<PropertyDescriptor> recordProperties(Class<?> type) {
-	return Arrays.stream(type.getRecordComponents())
-			.map(component -> {
-			  PropertyDescriptor pd = null;
-			  try {
-			    pd = new PropertyDescriptor(component.getName(), component.getAccessor(), null);
-			  } catch (IntrospectionException e) {
-				e.printStackTrace();
-			  }
-			  return pd;
-			})
-			.toList();
+    return Arrays.stream(type.getRecordComponents())
+        .map(component -> {
+          try {
+            return new PropertyDescriptor(component.getName(), component.getAccessor(), null);
+          } catch (IntrospectionException e) {
+            throw new IllegalStateException(e);
+          }
+        })
+        .toList();
+  }
+
+  /**
+   * Configures the JSON text of the instances of a class.
+   * The text returned by the function is inserted as is in the JSON text,
+   * the properties of the class are not introspected.
+   *
+   * @param type the class of the instances.
+   * @param function a function that returns the JSON text of an instance.
+   * @param <T> the type of the instances.
+   * @throws IllegalStateException if the class is already configured.
+   */
+  public <T> void configure(Class<T> type, Function<? super T, String> function) {
+    Objects.requireNonNull(type);
+    Objects.requireNonNull(function);
+    var result = configuredGenerators.putIfAbsent(type, (writer, o, output) -> output.append(function.apply(type.cast(o))));
+    if (result != null) {
+      throw new IllegalStateException("type " + type.getName() + " already configured");
+    }
+    var recordCache = this.recordCache;
+    if (recordCache != null) {  // the cached JSON texts may contain instances of the class
+      this.recordCache = new RecordCache(recordCache.capacity());
+    }
+  }
+
+  /**
+   * Enables or disables the compiled mode.
+   * In compiled mode, on the first use of a bean or a record class, a hidden class containing
+   * a straight-line code that writes each property in order is generated.
+   * If a class can not be compiled, the reflective generator is used instead.
+   *
+   * @param compiledMode true to enable the compiled mode.
+   */
+  public void setCompiledMode(boolean compiledMode) {
+    this.compiledMode = compiledMode;
+  }
+
+  /**
+   * Selects the view used to write the beans and the records.
+   * Only the properties that are part of the view are written, a property is part of a view
+   * if it is not annotated with {@link JSONView} or if the view is listed in its annotation.
+   * The properties of a view are computed once per class, so writing a view is as fast as
+   * writing a class that only declares those properties.
+   * The view also applies to the beans and records nested in the written object.
+   * Changing the view empties the cache of the JSON text of the immutable records.
+   *
+   * @param view the name of the view or null to write all the properties.
+   */
+  public void setView(String view) {
+    this.view = view == null ? ALL_PROPERTIES : VIEWS.computeIfAbsent(view, View::new);
+    var recordCache = this.recordCache;
+    if (recordCache != null) {
+      this.recordCache = new RecordCache(recordCache.capacity());
+    }
+  }
+
+  /**
+   * Enables the memoization of the JSON text of the immutable records.
+   * A record is immutable if all its components are primitive types, boxed types, strings,
+   * enums or immutable records.
+   * The JSON text of an immutable record is stored in a bounded cache keyed by the identity
+   * of the record and reused each time the same instance is written.
+   * The cache does not keep the records alive.
+   *
+   * Configuring a class with {@link #configure(Class, Function)} empties the cache.
+   *
+   * @param capacity the maximum number of records in the cache, 0 to disable the cache.
+   * @throws IllegalArgumentException if the capacity is negative or greater than 2^30.
+   *
+   * @see #recordCacheStatistics()
+   */
+  public void setRecordCacheCapacity(int capacity) {
+    if (capacity < 0 || capacity > RecordCache.MAX_CAPACITY) {
+      throw new IllegalArgumentException("capacity should be between 0 and 2^30 " + capacity);
+    }
+    recordCache = capacity == 0 ? null : new RecordCache(capacity);
+  }
+
+  /**
+   * Statistics of the cache of the JSON text of the immutable records.
+   *
+   * @param hits number of times the JSON text of a record has been reused.
+   * @param misses number of times the JSON text of a record has been computed.
+   */
+  public record RecordCacheStatistics(long hits, long misses) {
+    /**
+     * Returns the ratio between the number of hits and the number of lookups.
+     * @return the ratio between the number of hits and the number of lookups.
+     */
+    public double hitRate() {
+      var lookups = hits + misses;
+      return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+  }
+
+  /**
+   * Returns the statistics of the cache of the JSON text of the immutable records.
+   * @return the statistics of the cache of the JSON text of the immutable records.
+   * @throws IllegalStateException if the cache is not enabled.
+   *
+   * @see #setRecordCacheCapacity(int)
+   */
+  public RecordCacheStatistics recordCacheStatistics() {
+    var recordCache = this.recordCache;
+    if (recordCache == null) {
+      throw new IllegalStateException("record cache not enabled");
+    }
+    return new RecordCacheStatistics(recordCache.hits(), recordCache.misses());
+  }
+
+  private void toJsonBean(Object o, JSONOutput output) {
+    var type = o.getClass();
+    var generator = view.generator(type, compiledMode);
+    var recordCache = this.recordCache;
+    if (recordCache != null && RecordCache.isImmutableRecord(type)) {
+      var fragment = recordCache.get(o);
+      if (fragment == null) {
+        fragment = memoize(generator, o);
+        recordCache.put(o, fragment);
+      }
+      output.append(fragment);
+      return;
+    }
+    generator.generate(this, o, output);
+  }
+
+  private JSONOutput.Fragment memoize(Generator generator, Object o) {
+    var buffer = new JSONOutput.CharOutput();
+    try {
+      generator.generate(this, o, buffer);
+      return JSONOutput.Fragment.of(buffer.toString());
+    } finally {
+      buffer.release();
+    }
+  }
+
+  /**
+   * Enables the parallel mode for the large lists and arrays.
+   * If the value to write is a list or an array with at least {@code parallelThreshold} elements,
+   * the elements are split into chunks, each chunk is written into its own buffer on the fork join pool
+   * and the buffers are concatenated in order.
+   * By default, the parallel mode is disabled.
+   * The parallel mode is never used if only one processor is available, it is always slower in that case.
+   * The size above which the parallel mode is faster depends on the machine,
+   * it can be measured with the ParallelWriterBenchmark of the benchmarks profile.
+   *
+   * @param parallelThreshold the minimum number of elements to use the parallel mode.
+   * @throws IllegalArgumentException if the threshold is not positive.
+   */
+  public void setParallelThreshold(int parallelThreshold) {
+    if (parallelThreshold <= 0) {
+      throw new IllegalArgumentException("parallel threshold should be positive " + parallelThreshold);
+    }
+    this.parallelThreshold = parallelThreshold;
+  }
+
+  private void writeRoot(Object o, JSONOutput output) {
+    switch (o) {
+      case Object[] array when array.length >= parallelThreshold && isParallelCapable() ->
+          writeParallel(i -> array[i], array.length, output);
+      case List<?> list when list instanceof RandomAccess && list.size() >= parallelThreshold && isParallelCapable() ->
+          writeParallel(list::get, list.size(), output);
+      case null, default -> write(o, output);
+    }
+  }
+
+  private static boolean isParallelCapable() {
+    return Runtime.getRuntime().availableProcessors() > 1;
+  }
+
+  private void writeParallel(IntFunction<?> elements, int size, JSONOutput output) {
+    var chunkSize = Math.max(MIN_CHUNK_SIZE, size / (4 * ForkJoinPool.getCommonPoolParallelism()));
+    var chunkCount = (size + chunkSize - 1) / chunkSize;
+    var chunks = IntStream.range(0, chunkCount)
+        .parallel()
+        .mapToObj(chunk -> {
+          var chunkOutput = output.newBuffer();
+          var end = Math.min(size, (chunk + 1) * chunkSize);
+          for (var i = chunk * chunkSize; i < end; i++) {
+            if (i != 0) {
+              chunkOutput.append(", ");
+            }
+            write(elements.apply(i), chunkOutput);
+          }
+          return chunkOutput;
+        })
+        .toList();
+    output.append('[');
+    for (var chunk : chunks) {
+      output.append(chunk);
+      chunk.release();
+    }
+    output.append(']');
+  }
+
+  /**
+   * Writes the root object into an output without sink, the buffer is presized using the estimated size
+   * of the JSON text of the class of the root object, and the estimate is updated with the actual size.
+   */
+  private void writeEstimated(Object o, JSONOutput output) {
+    if (o == null) {
+      writeRoot(null, output);
+      return;
+    }
+    var sizeEstimate = view.sizeEstimate(o.getClass());
+    output.reserve(sizeEstimate.capacity());
+    writeRoot(o, output);
+    sizeEstimate.record(output.size());
   }
-  
-  private String toJsonBean(Object o){
 
-    return CACHE.get(o.getClass()).stream()
-            .map(generator -> generator.generate(this, o))
-            .collect(Collectors.joining(", ", "{", "}"));
+  /**
+   * Returns the estimated length of the JSON text of an instance of a class, 0 if unknown.
+   * The estimate is a moving average of the length of the JSON texts returned by {@link #toJSON(Object)}
+   * and {@link #toUTF8(Object)} for the objects of this class written with the current view,
+   * it can be used to size the buffers of the application.
+   * The length is in characters for {@link #toJSON(Object)} and in bytes for {@link #toUTF8(Object)},
+   * both are the same for an ASCII text.
+   *
+   * @param type the class of the written objects.
+   * @return the estimated length of the JSON text of an instance, 0 if unknown.
+   */
+  public int estimatedSize(Class<?> type) {
+    Objects.requireNonNull(type);
+    return view.sizeEstimate(type).estimate();
+  }
+
+  void write(Object o, JSONOutput output) {
+    if (o == null) {
+      output.append("null");
+      return;
+    }
+    var type = o.getClass();
+    var generator = configuredGenerators.isEmpty() ? null : configuredGenerators.get(type);
+    if (generator == null) {
+      generator = GENERATORS.get(type);
+    }
+    generator.generate(this, o, output);
   }
 
   public String toJSON(Object o) {
+    var output = new JSONOutput.CharOutput();
+    try {
+      writeEstimated(o, output);
+      return output.toString();
+    } finally {
+      output.release();
+    }
+  }
 
-    return switch (o){
-      case null -> "null";
-      case Boolean b -> b.toString();
-      case Integer i -> ""+i;
-      case Double d -> ""+d;
-      case String string -> "\"" +string+ "\"";
-      default -> toJsonBean(o);
-    };
+  /**
+   * Writes the JSON text of an object directly into an {@link Appendable},
+   * by example a {@link java.io.Writer}, without creating the intermediary strings.
+   *
+   * @param o the object to convert to JSON.
+   * @param appendable the destination of the JSON text.
+   * @throws IOException if the appendable raises an IOException.
+   */
+  public void toJSON(Object o, Appendable appendable) throws IOException {
+    Objects.requireNonNull(appendable);
+    var output = new JSONOutput.CharOutput(appendable);
+    try {
+      writeRoot(o, output);
+      output.flush();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      output.release();
+    }
+  }
+
+  /**
+   * Returns the JSON text of an object encoded in UTF-8.
+   *
+   * @param o the object to convert to JSON.
+   * @return the JSON text encoded in UTF-8.
+   */
+  public byte[] toUTF8(Object o) {
+    var output = new JSONOutput.Utf8Output();
+    try {
+      writeEstimated(o, output);
+      return output.toByteArray();
+    } finally {
+      output.release();
+    }
+  }
+
+  /**
+   * Writes the JSON text of an object encoded in UTF-8 directly into an {@link OutputStream}.
+   *
+   * @param o the object to convert to JSON.
+   * @param outputStream the destination of the JSON text.
+   * @throws IOException if the output stream raises an IOException.
+   */
+  public void toUTF8(Object o, OutputStream outputStream) throws IOException {
+    Objects.requireNonNull(outputStream);
+    var output = new JSONOutput.Utf8Output(outputStream::write);
+    try {
+      writeRoot(o, output);
+      output.flush();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      output.release();
+    }
+  }
+
+  /**
+   * Writes the JSON text of an object encoded in UTF-8 directly into a {@link ByteBuffer}
+   * starting at its current position.
+   *
+   * @param o the object to convert to JSON.
+   * @param byteBuffer the destination of the JSON text.
+   * @throws java.nio.BufferOverflowException if there is not enough space remaining in the buffer.
+   */
+  public void toUTF8(Object o, ByteBuffer byteBuffer) {
+    Objects.requireNonNull(byteBuffer);
+    var output = new JSONOutput.Utf8Output(byteBuffer::put);
+    try {
+      writeRoot(o, output);
+      output.flush();
+    } finally {
+      output.release();
+    }
+  }
+
+  /**
+   * Writes each element of a stream as a JSON text encoded in UTF-8 followed by a newline
+   * (<a href="https://github.com/ndjson/ndjson-spec">NDJSON</a>).
+   * The JSON texts are written into a buffer that is flushed into the output stream by large blocks,
+   * so the memory used does not depend on the number of elements.
+   *
+   * @param stream the elements to write.
+   * @param outputStream the destination of the JSON texts.
+   * @throws IOException if the output stream raises an IOException.
+   */
+  public void writeNdjson(Stream<?> stream, OutputStream outputStream) throws IOException {
+    Objects.requireNonNull(stream);
+    Objects.requireNonNull(outputStream);
+    writeNdjson(stream, new JSONOutput.Utf8Output(outputStream::write, NDJSON_CAPACITY));
+  }
+
+  /**
+   * Writes each element of a stream as a JSON text encoded in UTF-8 followed by a newline
+   * (<a href="https://github.com/ndjson/ndjson-spec">NDJSON</a>).
+   * The JSON texts are written into a buffer that is flushed into the channel by large blocks,
+   * so the memory used does not depend on the number of elements.
+   *
+   * @param stream the elements to write.
+   * @param channel the destination of the JSON texts, by example a {@link java.nio.channels.FileChannel}.
+   * @throws IOException if the channel raises an IOException.
+   */
+  public void writeNdjson(Stream<?> stream, WritableByteChannel channel) throws IOException {
+    Objects.requireNonNull(stream);
+    Objects.requireNonNull(channel);
+    writeNdjson(stream, new JSONOutput.Utf8Output((buffer, offset, length) -> {
+      var byteBuffer = ByteBuffer.wrap(buffer, offset, length);
+      while (byteBuffer.hasRemaining()) {
+        channel.write(byteBuffer);
+      }
+    }, NDJSON_CAPACITY));
+  }
+
+  private void writeNdjson(Stream<?> stream, JSONOutput output) throws IOException {
+    try {
+      stream.forEachOrdered(element -> {
+        write(element, output);
+        output.append('\n');
+      });
+      output.flush();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      output.release();
+    }
+  }
+
+  /**
+   * Writes the JSON text of an object encoded in UTF-8 into an asynchronous channel,
+   * by example an {@link java.nio.channels.AsynchronousSocketChannel}, without blocking the calling thread.
+   * The object is serialized on a virtual thread into fixed-size buffers, each filled buffer is written
+   * into the channel while the next one is filled, and the serialization waits if the channel is slower,
+   * so the JSON text is never fully in memory.
+   * The channel should not be written by someone else until the returned future completes,
+   * if the serialization fails, the future is completed once the pending write, if any, is done.
+   * Cancelling the future stops the serialization before the next write.
+   *
+   * @param o the object to convert to JSON.
+   * @param channel the destination of the JSON text.
+   * @return a future of the number of bytes written, completed exceptionally if an exception occurs.
+   */
+  public CompletableFuture<Long> toUTF8Async(Object o, AsynchronousByteChannel channel) {
+    Objects.requireNonNull(channel);
+    return toUTF8Async(o, (buffer, position, handler) -> channel.write(buffer, null, handler));
+  }
+
+  /**
+   * Writes the JSON text of an object encoded in UTF-8 into an asynchronous file channel
+   * starting at a position, without blocking the calling thread.
+   * The object is serialized on a virtual thread into fixed-size buffers, each filled buffer is written
+   * into the channel while the next one is filled, and the serialization waits if the channel is slower,
+   * so the JSON text is never fully in memory.
+   * If the serialization fails, the future is completed once the pending write, if any, is done.
+   * Cancelling the future stops the serialization before the next write.
+   *
+   * @param o the object to convert to JSON.
+   * @param channel the destination of the JSON text.
+   * @param position the position in the file of the first byte.
+   * @return a future of the number of bytes written, completed exceptionally if an exception occurs.
+   * @throws IllegalArgumentException if the position is negative.
+   */
+  public CompletableFuture<Long> toUTF8Async(Object o, AsynchronousFileChannel channel, long position) {
+    Objects.requireNonNull(channel);
+    if (position < 0) {
+      throw new IllegalArgumentException("position should be positive or zero " + position);
+    }
+    return toUTF8Async(o, (buffer, offset, handler) -> channel.write(buffer, position + offset, null, handler));
+  }
+
+  private CompletableFuture<Long> toUTF8Async(Object o, AsyncChannelSink.Channel channel) {
+    var future = new CompletableFuture<Long>();
+    var thread = Thread.ofVirtual().unstarted(() -> {
+      var sink = new AsyncChannelSink(channel, ASYNC_BUFFER_CAPACITY);
+      var output = new JSONOutput.Utf8Output(sink, ASYNC_BUFFER_CAPACITY);
+      try {
+        writeRoot(o, output);
+        output.flush();
+        future.complete(sink.close());
+      } catch (UncheckedIOException e) {
+        sink.drain();
+        future.completeExceptionally(e.getCause());
+      } catch (IOException | RuntimeException | Error e) {
+        // the channel may still be writing a buffer, the future is completed once the channel is done
+        sink.drain();
+        future.completeExceptionally(e);
+      } finally {
+        output.release();
+      }
+    });
+    // cancelling the future stops the serialization when it waits for the channel
+    future.whenComplete((__, e) -> {
+      if (e instanceof CancellationException) {
+        thread.interrupt();
+      }
+    });
+    thread.start();
+    return future;
+  }
+
+  /**
+   * Statistics of the pools of buffers used by all the JSONWriters.
+   *
+   * @param hits number of times a buffer has been reused.
+   * @param misses number of times a new buffer has been allocated.
+   */
+  public record BufferPoolStatistics(long hits, long misses) { }
+
+  /**
+   * Returns the statistics of the pools of buffers used by all the JSONWriters.
+   * @return the statistics of the pools of buffers used by all the JSONWriters.
+   */
+  public static BufferPoolStatistics bufferPoolStatistics() {
+    return new BufferPoolStatistics(
+        JSONOutput.CHAR_POOL.hits() + JSONOutput.BYTE_POOL.hits(),
+        JSONOutput.CHAR_POOL.misses() + JSONOutput.BYTE_POOL.misses());
   }
 }
@@ -0,0 +1,104 @@
+package com.github.forax.framework.mapper;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator of the lines of a text encoded in UTF-8
+ * (<a href="https://github.com/ndjson/ndjson-spec">NDJSON</a>), each non-blank line is decoded by a line parser.
+ *
+ * The text is split in two halves at the first newline after the middle, so the text is never scanned
+ * before being split and the lines are found and decoded by the thread that processes the half.
+ * A newline byte can not be part of a multibyte character, so a line is never split.
+ */
+final class NdjsonSpliterator<T> implements Spliterator<T> {
+  /**
+   * Decodes the line of the text between start (inclusive) and end (exclusive).
+   */
+  @FunctionalInterface
+  interface LineParser<T> {
+    T parse(int start, int end);
+  }
+
+  /**
+   * Minimum number of bytes of a part of the text that is split.
+   */
+  private static final int MIN_SPLIT_SIZE = 1 << 14;
+
+  private final ByteBuffer text;
+  private final LineParser<? extends T> lineParser;
+  private int start;
+  private final int end;
+
+  NdjsonSpliterator(ByteBuffer text, int start, int end, LineParser<? extends T> lineParser) {
+    this.text = text;
+    this.start = start;
+    this.end = end;
+    this.lineParser = lineParser;
+  }
+
+  private int newline(int from) {
+    var text = this.text;
+    for (var i = from; i < end; i++) {
+      if (text.get(i) == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isBlank(int from, int to) {
+    for (var i = from; i < to; i++) {
+      switch (text.get(i)) {
+        case ' ', '\t', '\r' -> {}
+        default -> {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    Objects.requireNonNull(action);
+    while (start < end) {
+      var newline = newline(start);
+      var lineStart = start;
+      var lineEnd = newline == -1 ? end : newline;
+      start = lineEnd + 1;
+      if (isBlank(lineStart, lineEnd)) {
+        continue;
+      }
+      action.accept(lineParser.parse(lineStart, lineEnd));
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    if (end - start < MIN_SPLIT_SIZE) {
+      return null;
+    }
+    var newline = newline(start + (end - start) / 2);
+    if (newline == -1) {
+      return null;
+    }
+    var prefix = new NdjsonSpliterator<T>(text, start, newline + 1, lineParser);
+    start = newline + 1;
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    return end - start;  // the number of bytes is an upper bound of the number of lines
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | IMMUTABLE;
+  }
+}
@@ -0,0 +1,109 @@
+package com.github.forax.framework.mapper;
+
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of the JSON text of immutable records, keyed by identity.
+ *
+ * The cache is a direct-mapped table indexed by the identity hash code of the record,
+ * an entry keeps the record with a weak reference, so the cache never keeps a record alive,
+ * and a new entry simply replaces the older entry at the same index.
+ * The table is read and written without lock, this is safe because the entries are immutable.
+ */
+final class RecordCache {
+  private record Entry(WeakReference<Object> reference, JSONOutput.Fragment fragment) { }
+
+  private static final ClassValue<Boolean> IMMUTABLE_RECORDS = new ClassValue<>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      return isImmutable(type, new HashSet<>());
+    }
+  };
+
+  private static final Set<Class<?>> IMMUTABLE_TYPES = Set.of(
+      String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+      Float.class, Double.class, BigInteger.class, BigDecimal.class);
+
+  private static boolean isImmutable(Class<?> type, HashSet<Class<?>> visited) {
+    if (type.isPrimitive() || type.isEnum() || IMMUTABLE_TYPES.contains(type)) {
+      return true;
+    }
+    if (!type.isRecord()) {
+      return false;
+    }
+    if (!visited.add(type)) {  // recursive record
+      return true;
+    }
+    return Arrays.stream(type.getRecordComponents())
+        .allMatch(component -> isImmutable(component.getType(), visited));
+  }
+
+  /**
+   * Returns true if the type is a record with all its components immutable,
+   * i.e. primitive types, boxed types, strings, enums or immutable records.
+   *
+   * @param type a class.
+   * @return true if the type is a record with all its components immutable.
+   */
+  static boolean isImmutableRecord(Class<?> type) {
+    return type.isRecord() && IMMUTABLE_RECORDS.get(type);
+  }
+
+  /**
+   * Maximum capacity, the capacity is rounded up to a power of two.
+   */
+  static final int MAX_CAPACITY = 1 << 30;
+
+  private final Entry[] entries;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  RecordCache(int capacity) {
+    if (capacity <= 0 || capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException("invalid capacity " + capacity);
+    }
+    entries = new Entry[Math.max(1, Integer.highestOneBit(capacity - 1) << 1)];
+  }
+
+  int capacity() {
+    return entries.length;
+  }
+
+  private int index(Object record) {
+    var hash = System.identityHashCode(record);
+    return (hash ^ (hash >>> 16)) & (entries.length - 1);
+  }
+
+  /**
+   * Returns the JSON text of a record or null if the record is not in the cache.
+   * @param record a record.
+   * @return the JSON text of a record or null.
+   */
+  JSONOutput.Fragment get(Object record) {
+    var entry = entries[index(record)];
+    if (entry != null && entry.reference.get() == record) {
+      hits.increment();
+      return entry.fragment;
+    }
+    misses.increment();
+    return null;
+  }
+
+  void put(Object record, JSONOutput.Fragment fragment) {
+    entries[index(record)] = new Entry(new WeakReference<>(record), fragment);
+  }
+
+  long hits() {
+    return hits.sum();
+  }
+
+  long misses() {
+    return misses.sum();
+  }
+}
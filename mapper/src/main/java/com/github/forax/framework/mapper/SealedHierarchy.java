@@ -0,0 +1,138 @@
+package com.github.forax.framework.mapper;
+
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Type names of the subclasses of the sealed classes and interfaces.
+ *
+ * An instance of a class that directly extends or implements a sealed type or of a concrete sealed class
+ * is written with a discriminator property {@value #DISCRIMINATOR} containing its type name, the simple name of the class.
+ * When reading, the type name is looked up in a table computed once per sealed type
+ * that contains all the concrete subclasses transitively permitted.
+ * A non-sealed class or interface opens the hierarchy, the classes below it have no discriminator
+ * and a sealed type that has such a class in its hierarchy can not be read.
+ */
+final class SealedHierarchy {
+  private SealedHierarchy() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Name of the discriminator property.
+   */
+  static final String DISCRIMINATOR = "@type";
+
+  private static final ClassValue<Map<String, Class<?>>> SUBCLASSES = new ClassValue<>() {
+    @Override
+    protected Map<String, Class<?>> computeValue(Class<?> type) {
+      var map = new HashMap<String, Class<?>>();
+      if (isConcrete(type)) {
+        map.put(typeName(type), type);
+      }
+      collectSubclasses(type, type, map);
+      return Map.copyOf(map);
+    }
+  };
+
+  private static final ClassValue<Optional<String>> DISCRIMINATORS = new ClassValue<>() {
+    @Override
+    protected Optional<String> computeValue(Class<?> type) {
+      if (!(isPermitted(type) || (type.isSealed() && isConcrete(type))) || isNonSealed(type) || nonSealedSupertype(type).isPresent()) {
+        return Optional.empty();
+      }
+      return Optional.of(typeName(type));
+    }
+  };
+
+  private static void collectSubclasses(Class<?> sealedType, Class<?> type, HashMap<String, Class<?>> map) {
+    for (var subclass : type.getPermittedSubclasses()) {
+      if (isNonSealed(subclass)) {
+        throw nonSealedError(subclass, sealedType);
+      }
+      if (subclass.isSealed()) {
+        collectSubclasses(sealedType, subclass, map);
+        if (!isConcrete(subclass)) {
+          continue;
+        }
+      }
+      var previous = map.putIfAbsent(typeName(subclass), subclass);
+      if (previous != null && previous != subclass) {
+        throw new IllegalStateException("subclasses " + previous.getName() + " and " + subclass.getName() +
+            " of " + sealedType.getName() + " have the same type name");
+      }
+    }
+  }
+
+  private static String typeName(Class<?> type) {
+    return type.getSimpleName();
+  }
+
+  private static Stream<Class<?>> supertypes(Class<?> type) {
+    return Stream.concat(Stream.ofNullable(type.getSuperclass()), Stream.of(type.getInterfaces()));
+  }
+
+  private static boolean isPermitted(Class<?> type) {
+    return supertypes(type).anyMatch(Class::isSealed);
+  }
+
+  private static boolean isConcrete(Class<?> type) {
+    return !type.isInterface() && !Modifier.isAbstract(type.getModifiers());
+  }
+
+  private static boolean isNonSealed(Class<?> type) {
+    return !type.isSealed() && !Modifier.isFinal(type.getModifiers()) && isPermitted(type);
+  }
+
+  private static Optional<Class<?>> nonSealedSupertype(Class<?> type) {
+    return supertypes(type)
+        .flatMap(supertype -> isNonSealed(supertype) ? Stream.of(supertype) : nonSealedSupertype(supertype).stream())
+        .findFirst();
+  }
+
+  private static IllegalStateException nonSealedError(Class<?> nonSealedType, Class<?> type) {
+    return new IllegalStateException("non-sealed " + nonSealedType.getName() + " in the hierarchy of " + type.getName() +
+        " is not supported, its subclasses can not be listed");
+  }
+
+  /**
+   * Returns the type name written in the discriminator property
+   * or an empty optional if the class has no sealed supertype or is below a non-sealed class.
+   *
+   * @param type a bean or a record class.
+   * @return the type name of the class or an empty optional.
+   */
+  static Optional<String> discriminator(Class<?> type) {
+    return DISCRIMINATORS.get(type);
+  }
+
+  /**
+   * Checks that all the subclasses of a sealed type can be listed.
+   *
+   * @param sealedType a sealed class or interface.
+   * @throws IllegalStateException if the hierarchy contains a non-sealed class or interface
+   *   or two subclasses with the same type name.
+   */
+  static void checkSubclasses(Class<?> sealedType) {
+    SUBCLASSES.get(sealedType);
+  }
+
+  /**
+   * Returns the subclass of a sealed type corresponding to a type name.
+   *
+   * @param sealedType a sealed class or interface.
+   * @param typeName the value of the discriminator property.
+   * @return the subclass of the sealed type with that type name.
+   * @throws IllegalStateException if there is no subclass with that type name.
+   */
+  static Class<?> subclass(Class<?> sealedType, String typeName) {
+    var subclass = SUBCLASSES.get(sealedType).get(typeName);
+    if (subclass == null) {
+      throw new IllegalStateException("unknown type " + typeName + " for " + sealedType.getName());
+    }
+    return subclass;
+  }
+}
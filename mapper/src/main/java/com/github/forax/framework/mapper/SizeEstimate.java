@@ -0,0 +1,37 @@
+package com.github.forax.framework.mapper;
+
+/**
+ * A running estimate of the size of the JSON text of a class, an exponentially weighted moving average
+ * where each new size counts for 1/8.
+ *
+ * The estimate is updated without synchronization, a concurrent update may be lost,
+ * this is fine for a value only used to presize the buffers.
+ */
+final class SizeEstimate {
+  private static final int SHIFT = 3;
+
+  private volatile int estimate;
+
+  /**
+   * Returns the estimated size, 0 if no size has been recorded.
+   * @return the estimated size.
+   */
+  int estimate() {
+    return estimate;
+  }
+
+  /**
+   * Returns the capacity of a buffer that should be able to hold the next JSON text,
+   * the estimate plus a margin of 1/8.
+   * @return the capacity of a buffer that should be able to hold the next JSON text.
+   */
+  int capacity() {
+    var estimate = this.estimate;
+    return (int) Math.min(Integer.MAX_VALUE - 8, estimate + (long) (estimate >> SHIFT));
+  }
+
+  void record(int size) {
+    var estimate = this.estimate;
+    this.estimate = estimate == 0 ? size : estimate + ((size - estimate) >> SHIFT);
+  }
+}
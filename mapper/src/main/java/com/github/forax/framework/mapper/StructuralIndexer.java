@@ -0,0 +1,190 @@
+package com.github.forax.framework.mapper;
+
+import java.util.Arrays;
+
+/**
+ * First stage of a two-stage parsing of a JSON text encoded in UTF-8, like simdjson.
+ *
+ * The text is classified 64 bytes at a time into bitmasks, one bit per byte, of the quotes,
+ * the backslashes, the structural characters and the whitespaces.
+ * The escaped characters, the characters inside the strings and the starts of the numbers and keywords
+ * are then computed with a few arithmetic operations on the bitmasks without looking at the bytes again,
+ * and the positions of the tokens are extracted from the resulting bitmask.
+ * The second stage, {@link JSONLexer.IndexedLexer}, jumps from position to position.
+ *
+ * The classification uses the Vector API if the module {@code jdk.incubator.vector} is enabled,
+ * i.e. the VM is started with {@code --add-modules jdk.incubator.vector}.
+ */
+final class StructuralIndexer {
+  /**
+   * Classifies the 64 bytes of a block, the bit i of a bitmask corresponds to the byte at {@code start + i}.
+   */
+  interface Classifier {
+    int QUOTE = 0, BACKSLASH = 1, STRUCTURAL = 2, WHITESPACE = 3, CONTROL = 4;
+
+    /**
+     * Computes the bitmasks of a block.
+     * @param input the bytes.
+     * @param start the index of the first byte of the block.
+     * @param masks an array of 5 bitmasks indexed by {@link #QUOTE}, {@link #BACKSLASH},
+     *              {@link #STRUCTURAL}, {@link #WHITESPACE} and {@link #CONTROL}, the control characters
+     *              between U+0000 and U+001F.
+     */
+    void classify(byte[] input, int start, long[] masks);
+  }
+
+  /**
+   * Size of a block in bytes.
+   */
+  static final int BLOCK_SIZE = 64;
+
+  /**
+   * True if the module {@code jdk.incubator.vector} is enabled.
+   */
+  static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+  /**
+   * A classifier that classifies the bytes one by one.
+   */
+  static final Classifier SCALAR = StructuralIndexer::classifyScalar;
+
+  private static void classifyScalar(byte[] input, int start, long[] masks) {
+    long quote = 0, backslash = 0, structural = 0, whitespace = 0, control = 0;
+    for (var i = 0; i < BLOCK_SIZE; i++) {
+      var bit = 1L << i;
+      var b = input[start + i];
+      if (b >= 0 && b < ' ') {
+        control |= bit;
+      }
+      switch (b) {
+        case '"' -> quote |= bit;
+        case '\\' -> backslash |= bit;
+        case '{', '}', '[', ']', ':', ',' -> structural |= bit;
+        case ' ', '\t', '\n', '\r' -> whitespace |= bit;
+        default -> {}
+      }
+    }
+    masks[Classifier.QUOTE] = quote;
+    masks[Classifier.BACKSLASH] = backslash;
+    masks[Classifier.STRUCTURAL] = structural;
+    masks[Classifier.WHITESPACE] = whitespace;
+    masks[Classifier.CONTROL] = control;
+  }
+
+  /**
+   * Returns the classifier that uses the Vector API,
+   * the class {@link VectorClassifier} is only loaded if this method is called.
+   * @return the classifier that uses the Vector API.
+   * @throws IllegalStateException if the module {@code jdk.incubator.vector} is not enabled.
+   */
+  static Classifier vectorClassifier() {
+    if (!VECTORIZED) {
+      throw new IllegalStateException("the module jdk.incubator.vector is not enabled");
+    }
+    return VectorClassifier.INSTANCE;
+  }
+
+  private final byte[] input;
+  private final int offset;
+  private final int limit;
+  private final Classifier classifier;
+  private final long[] masks = new long[5];
+  private int position;
+  private boolean escapeCarry;  // true if the first byte of the block is escaped
+  private long stringCarry;     // -1 if the first byte of the block is inside a string, 0 otherwise
+  private long atomCarry;       // 1 if the last byte of the previous block is part of a number or a keyword
+
+  StructuralIndexer(byte[] input, int offset, int limit, Classifier classifier) {
+    this.input = input;
+    this.offset = offset;
+    this.position = offset;
+    this.limit = limit;
+    this.classifier = classifier;
+  }
+
+  /**
+   * Fills the array with the positions of the next tokens and of the closing quotes of the strings,
+   * the array is filled block by block until there is not enough room for another block.
+   * @param positions an array of positions, its length should be at least {@link #BLOCK_SIZE}.
+   * @return the number of positions, 0 if the end of the text is reached.
+   * @throws IllegalStateException if a string contains an unescaped control character.
+   */
+  int index(int[] positions) {
+    var count = 0;
+    while (position < limit && count + BLOCK_SIZE <= positions.length) {
+      count = indexBlock(positions, count);
+      position += BLOCK_SIZE;
+    }
+    return count;
+  }
+
+  private int indexBlock(int[] positions, int count) {
+    var masks = this.masks;
+    var remaining = limit - position;
+    if (remaining >= BLOCK_SIZE) {
+      classifier.classify(input, position, masks);
+    } else {
+      // the last block is padded with spaces
+      var block = new byte[BLOCK_SIZE];
+      Arrays.fill(block, (byte) ' ');
+      System.arraycopy(input, position, block, 0, remaining);
+      classifier.classify(block, 0, masks);
+    }
+
+    var quote = masks[Classifier.QUOTE] & ~escaped(masks[Classifier.BACKSLASH]);
+    // the opening quote and the characters of a string, but not the closing quote
+    var string = prefixXor(quote) ^ stringCarry;
+    stringCarry = string >> 63;
+    var control = masks[Classifier.CONTROL] & string;
+    if (control != 0) {
+      var index = this.position + Long.numberOfTrailingZeros(control);
+      throw new IllegalStateException("unescaped control character U+%04X at %d".formatted(input[index], index - offset));
+    }
+    var structural = masks[Classifier.STRUCTURAL] & ~string;
+    var atom = ~(masks[Classifier.WHITESPACE] | masks[Classifier.STRUCTURAL] | quote | string);
+    var atomStart = atom & ~(atom << 1 | atomCarry);
+    atomCarry = atom >>> 63;
+
+    var tokens = structural | quote | atomStart;
+    var position = this.position;
+    while (tokens != 0) {
+      positions[count++] = position + Long.numberOfTrailingZeros(tokens);
+      tokens &= tokens - 1;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the bitmask of the escaped characters, the characters preceded by an odd number of backslashes.
+   * The backslashes are rare, so they are visited one by one.
+   */
+  private long escaped(long backslash) {
+    var escaped = escapeCarry ? 1L : 0L;
+    escapeCarry = false;
+    backslash &= ~escaped;
+    while (backslash != 0) {
+      var index = Long.numberOfTrailingZeros(backslash);
+      if (index == BLOCK_SIZE - 1) {
+        escapeCarry = true;
+        break;
+      }
+      escaped |= 2L << index;
+      backslash &= -(4L << index);  // removes the backslash and the escaped character
+    }
+    return escaped;
+  }
+
+  /**
+   * Returns a bitmask where the bit i is the xor of the bits 0 to i,
+   * so the bits between an opening quote and a closing quote are set.
+   */
+  private static long prefixXor(long bits) {
+    bits ^= bits << 1;
+    bits ^= bits << 2;
+    bits ^= bits << 4;
+    bits ^= bits << 8;
+    bits ^= bits << 16;
+    bits ^= bits << 32;
+    return bits;
+  }
+}
@@ -1,19 +1,18 @@
 package com.github.forax.framework.mapper;
 
-import static java.lang.Double.parseDouble;
-import static java.lang.Integer.parseInt;
-import static java.util.regex.Pattern.compile;
-import static java.util.stream.Collectors.joining;
-import static java.util.stream.IntStream.rangeClosed;
-import static com.github.forax.framework.mapper.ToyJSONParser.Kind.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
-import java.util.Arrays;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import static com.github.forax.framework.mapper.JSONStreamReader.Kind.START_ARRAY;
+import static com.github.forax.framework.mapper.JSONStreamReader.Kind.START_OBJECT;
 
 /**
- * A Toy JSON parser that do not recognize correctly, unicode characters, escaped strings
- * and i'm sure many more features.
+ * A Toy JSON parser that do not check that the JSON text is well-formed after the end of
+ * the first object or array and i'm sure many more features.
  *
  * @see #parse(String, JSONVisitor)
  */
@@ -22,63 +21,6 @@ class ToyJSONParser {
     throw new AssertionError();
   }
 
-  enum Kind {
-    NULL("(null)"),
-    TRUE("(true)"),
-    FALSE("(false)"),
-    DOUBLE("([0-9]*\\.[0-9]*)"),
-    INTEGER("([0-9]+)"),
-    STRING("\"([^\\\"]*)\""),
-    LEFT_CURLY("(\\{)"),
-    RIGHT_CURLY("(\\})"),
-    LEFT_BRACKET("(\\[)"),
-    RIGHT_BRACKET("(\\])"),
-    COLON("(\\:)"),
-    COMMA("(\\,)"),
-    BLANK("([ \t]+)")
-    ;
-
-    private final String regex;
-
-    Kind(String regex) {
-      this.regex = regex;
-    }
-
-    private static final Kind[] VALUES = values();
-  }
-
-  private record Token(Kind kind, String text, int location) {
-    private boolean is(Kind kind) {
-      return this.kind == kind;
-    }
-
-    private String expect(Kind kind) {
-      if (this.kind != kind) {
-        throw error(kind);
-      }
-      return text;
-    }
-
-    public IllegalStateException error(Kind... expectedKinds) {
-      return new IllegalStateException("expect " + Arrays.stream(expectedKinds).map(Kind::name).collect(joining(", ")) + " but recognized " + kind + " at " + location);
-    }
-  }
-
-  private record Lexer(Matcher matcher) {
-    private Token next() {
-      for(;;) {
-        if (!matcher.find()) {
-          throw new IllegalStateException("no token recognized");
-        }
-        var index = rangeClosed(1, matcher.groupCount()).filter(i -> matcher.group(i) != null).findFirst().orElseThrow();
-        var kind = Kind.VALUES[index - 1];
-        if (kind != Kind.BLANK) {
-          return new Token(kind, matcher.group(index), matcher.start(index));
-        }
-      }
-    }
-  }
-
   /**
    * Methods called when a JSON text is parsed.
    * @see #parse(String, JSONVisitor)
@@ -123,9 +65,18 @@ class ToyJSONParser {
      * @see #startArray(String)
      */
     void endArray(String key);
-  }
 
-  private static final Pattern PATTERN = compile(Arrays.stream(Kind.VALUES).map(k -> k.regex).collect(joining("|")));
+    /**
+     * Called during the parsing before each value of an object or an array,
+     * if it returns true the value is skipped without calling the other methods of the visitor,
+     * the content of a skipped object or array is not decoded, only its brackets are counted.
+     * @param key the key of the value if inside an object, {@code null} otherwise.
+     * @return true if the value should be skipped.
+     */
+    default boolean skip(String key) {
+      return false;
+    }
+  }
 
   /**
    * Parse a JSON text and calls the visitor methods when an array, an object or a value is parsed.
@@ -134,85 +85,144 @@ class ToyJSONParser {
    * @param visitor the visitor to call when parsing the JSON text
    */
   public static void parse(String input, JSONVisitor visitor) {
-    var lexer = new Lexer(PATTERN.matcher(input));
+    var lexer = new JSONLexer.CharLexer(input.toCharArray());
     try {
-      parse(lexer, visitor);
-    } catch(IllegalStateException e) {
-      throw new IllegalStateException(e.getMessage() + "\n while parsing " + input, e);
+      parseRoot(lexer, visitor);
+    } catch(IllegalStateException | NumberFormatException e) {
+      throw new IllegalStateException(e.getMessage() + "\n while parsing " + excerpt(input, lexer.location), e);
     }
   }
 
-  private static void parse(Lexer lexer, JSONVisitor visitor) {
-    var token = lexer.next();
-    switch(token.kind) {
-      case LEFT_CURLY -> {
-        visitor.startObject(null);
-        parseObject(null, lexer, visitor);
-      }
-      case LEFT_BRACKET -> {
-        visitor.startArray(null);
-        parseArray(null, lexer, visitor);
-      }
-      default -> throw token.error(LEFT_CURLY, LEFT_BRACKET);
-    }
+  /**
+   * Number of characters or bytes before and after the location of an error shown in the error message.
+   */
+  private static final int EXCERPT_RADIUS = 32;
+
+  private static String excerpt(String input, int location) {
+    var end = Math.min(input.length(), location + EXCERPT_RADIUS);
+    var start = Math.min(end, Math.max(0, location - EXCERPT_RADIUS));
+    return (start == 0 ? "" : "...") + input.substring(start, end) + (end == input.length() ? "" : "...");
   }
 
-  private static void parseValue(String currentKey, Token token, Lexer lexer, JSONVisitor visitor) {
-    switch (token.kind) {
-      case NULL -> visitor.value(currentKey, null);
-      case FALSE -> visitor.value(currentKey, false);
-      case TRUE -> visitor.value(currentKey, true);
-      case INTEGER -> visitor.value(currentKey, parseInt(token.text));
-      case DOUBLE -> visitor.value(currentKey, parseDouble(token.text));
-      case STRING -> visitor.value(currentKey, token.text);
-      case LEFT_CURLY -> {
-        visitor.startObject(currentKey);
-        parseObject(currentKey, lexer, visitor);
-      }
-      case LEFT_BRACKET -> {
-        visitor.startArray(currentKey);
-        parseArray(currentKey, lexer, visitor);
-      }
-      default -> throw token.error(NULL, FALSE, TRUE, INTEGER, DOUBLE, STRING, LEFT_BRACKET, RIGHT_CURLY);
+  private static String excerpt(byte[] input, int offset, int limit, int location) {
+    var end = Math.min(limit, offset + location + EXCERPT_RADIUS);
+    var start = Math.min(end, Math.max(offset, offset + location - EXCERPT_RADIUS));
+    // do not cut a character encoded on several bytes
+    while (start > offset && (input[start] & 0xC0) == 0x80) {
+      start--;
+    }
+    while (end < limit && (input[end] & 0xC0) == 0x80) {
+      end++;
     }
+    return (start == offset ? "" : "...") + new String(input, start, end - start, StandardCharsets.UTF_8) +
+        (end == limit ? "" : "...");
   }
 
-  private static void parseObject(String currentKey, Lexer lexer, JSONVisitor visitor) {
-    var token = lexer.next();
-    if (token.is(RIGHT_CURLY)) {
-      visitor.endObject(currentKey);
+  /**
+   * Parse a JSON text encoded in UTF-8 without decoding it first,
+   * the strings are decoded when they are sent to the visitor.
+   * If the module {@code jdk.incubator.vector} is enabled, the positions of the tokens are first
+   * found using the Vector API, see {@link StructuralIndexer}.
+   *
+   * @param input a JSON text encoded in UTF-8
+   * @param visitor the visitor to call when parsing the JSON text
+   */
+  public static void parse(byte[] input, JSONVisitor visitor) {
+    parse(input, 0, input.length, visitor);
+  }
+
+  /**
+   * Parse a JSON text encoded in UTF-8 between the position and the limit of a buffer without decoding it first,
+   * the strings are decoded when they are sent to the visitor.
+   * The locations in the error messages are relative to the position, the position of the buffer is not changed.
+   * The bytes of a direct buffer are first copied into the heap.
+   *
+   * @param input a JSON text encoded in UTF-8
+   * @param visitor the visitor to call when parsing the JSON text
+   */
+  public static void parse(ByteBuffer input, JSONVisitor visitor) {
+    if (input.hasArray()) {
+      var offset = input.arrayOffset();
+      parse(input.array(), offset + input.position(), offset + input.limit(), visitor);
       return;
     }
-    for(;;) {
-      var key = token.expect(STRING);
-      lexer.next().expect(COLON);
-      token = lexer.next();
-      parseValue(key, token, lexer, visitor);
-      token = lexer.next();
-      if (token.is(RIGHT_CURLY)) {
-        visitor.endObject(currentKey);
-        return;
-      }
-      token.expect(COMMA);
-      token = lexer.next();
+    var bytes = new byte[input.remaining()];
+    input.get(input.position(), bytes);
+    parse(bytes, 0, bytes.length, visitor);
+  }
+
+  /**
+   * Parse a JSON text read from a reader using a fixed-size buffer that is refilled,
+   * so the JSON text is never fully in memory.
+   * The memory used only depends on the depth of the objects and arrays and on the size of the longest string.
+   * The reader is not closed.
+   *
+   * @param reader a reader of a JSON text
+   * @param visitor the visitor to call when parsing the JSON text
+   * @throws IOException if the reader raises an IOException
+   */
+  public static void parse(Reader reader, JSONVisitor visitor) throws IOException {
+    parseStream(new JSONLexer.CharLexer(reader, JSONLexer.BUFFER_CAPACITY), visitor);
+  }
+
+  /**
+   * Parse a JSON text encoded in UTF-8 read from an input stream using a fixed-size buffer that is refilled,
+   * so the JSON text is never fully in memory and the bytes are not decoded first.
+   * The memory used only depends on the depth of the objects and arrays and on the size of the longest string.
+   * The input stream is not closed.
+   *
+   * @param inputStream an input stream of a JSON text encoded in UTF-8
+   * @param visitor the visitor to call when parsing the JSON text
+   * @throws IOException if the input stream raises an IOException
+   */
+  public static void parse(InputStream inputStream, JSONVisitor visitor) throws IOException {
+    parseStream(new JSONLexer.Utf8Lexer(inputStream, JSONLexer.BUFFER_CAPACITY), visitor);
+  }
+
+  private static void parseStream(JSONLexer lexer, JSONVisitor visitor) throws IOException {
+    try {
+      parseRoot(lexer, visitor);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException(e.getMessage(), e);
     }
   }
 
-  private static void parseArray(String currentKey, Lexer lexer, JSONVisitor visitor) {
-    var token = lexer.next();
-    if (token.is(RIGHT_BRACKET)) {
-      visitor.endArray(currentKey);
-      return;
+  private static void parse(byte[] input, int offset, int limit, JSONVisitor visitor) {
+    var lexer = JSONLexer.utf8(input, offset, limit);
+    try {
+      parseRoot(lexer, visitor);
+    } catch(IllegalStateException | NumberFormatException e) {
+      throw new IllegalStateException(e.getMessage() + "\n while parsing " + excerpt(input, offset, limit, lexer.location), e);
     }
+  }
+
+  private static void parseRoot(JSONLexer lexer, JSONVisitor visitor) {
+    var reader = new JSONStreamReader(lexer);
     for(;;) {
-      parseValue(null, token, lexer, visitor);
-      token = lexer.next();
-      if (token.is(RIGHT_BRACKET)) {
-        visitor.endArray(currentKey);
-        return;
+      var kind = reader.next();
+      switch (kind) {
+        case END_OBJECT -> visitor.endObject(reader.currentKey());
+        case END_ARRAY -> visitor.endArray(reader.currentKey());
+        case END_DOCUMENT -> {
+          return;
+        }
+        default -> {
+          var key = reader.currentKey();
+          var isContainer = kind == START_OBJECT || kind == START_ARRAY;
+          // the root object or array is never skipped
+          if ((!isContainer || reader.depth() > 1) && visitor.skip(key)) {
+            reader.skipChildren();
+            continue;
+          }
+          switch (kind) {
+            case START_OBJECT -> visitor.startObject(key);
+            case START_ARRAY -> visitor.startArray(key);
+            default -> visitor.value(key, reader.value());
+          }
+        }
       }
-      token.expect(COMMA);
-      token = lexer.next();
     }
   }
-}
\ No newline at end of file
+}
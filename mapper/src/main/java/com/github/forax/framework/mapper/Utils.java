@@ -3,6 +3,8 @@ package com.github.forax.framework.mapper;
 import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.InvocationTargetException;
@@ -42,8 +44,16 @@ final class Utils {
     }
   }
 
+  public static MethodHandle unreflect(Method method) {
+    try {
+      return MethodHandles.lookup().unreflect(method);
+    } catch (IllegalAccessException e) {
+      throw (IllegalAccessError) new IllegalAccessError().initCause(e);
+    }
+  }
+
   @SuppressWarnings("unchecked")   // very wrong but works
-  private static <T extends Throwable> AssertionError rethrow(Throwable cause) throws T {
+  static <T extends Throwable> AssertionError rethrow(Throwable cause) throws T {
     throw (T) cause;
   }
 
@@ -0,0 +1,50 @@
+package com.github.forax.framework.mapper;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.EQ;
+import static jdk.incubator.vector.VectorOperators.UNSIGNED_LT;
+
+/**
+ * A classifier of the bytes of a block that uses the Vector API,
+ * this class should only be loaded if the module {@code jdk.incubator.vector} is enabled.
+ *
+ * @see StructuralIndexer#vectorClassifier()
+ */
+final class VectorClassifier implements StructuralIndexer.Classifier {
+  static final VectorClassifier INSTANCE = new VectorClassifier();
+
+  private static final VectorSpecies<Byte> SPECIES =
+      ByteVector.SPECIES_PREFERRED.length() <= StructuralIndexer.BLOCK_SIZE ? ByteVector.SPECIES_PREFERRED : ByteVector.SPECIES_512;
+
+  private VectorClassifier() {}
+
+  @Override
+  public void classify(byte[] input, int start, long[] masks) {
+    long quote = 0, backslash = 0, structural = 0, whitespace = 0, control = 0;
+    for (var i = 0; i < StructuralIndexer.BLOCK_SIZE; i += SPECIES.length()) {
+      var vector = ByteVector.fromArray(SPECIES, input, start + i);
+      quote |= vector.compare(EQ, '"').toLong() << i;
+      backslash |= vector.compare(EQ, '\\').toLong() << i;
+      // '[' | 0x20 == '{' and ']' | 0x20 == '}'
+      var lower = vector.or((byte) 0x20);
+      structural |= lower.compare(EQ, '{')
+          .or(lower.compare(EQ, '}'))
+          .or(vector.compare(EQ, ':'))
+          .or(vector.compare(EQ, ','))
+          .toLong() << i;
+      whitespace |= vector.compare(EQ, ' ')
+          .or(vector.compare(EQ, '\t'))
+          .or(vector.compare(EQ, '\n'))
+          .or(vector.compare(EQ, '\r'))
+          .toLong() << i;
+      control |= vector.compare(UNSIGNED_LT, ' ').toLong() << i;
+    }
+    masks[QUOTE] = quote;
+    masks[BACKSLASH] = backslash;
+    masks[STRUCTURAL] = structural;
+    masks[WHITESPACE] = whitespace;
+    masks[CONTROL] = control;
+  }
+}
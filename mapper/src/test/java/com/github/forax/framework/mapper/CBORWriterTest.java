@@ -0,0 +1,188 @@
+package com.github.forax.framework.mapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.ParameterizedType;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CBORWriterTest {
+  private static String hex(byte[] data) {
+    return HexFormat.of().formatHex(data);
+  }
+
+  private static JSONReader reader() {
+    var reader = new JSONReader();
+    reader.addTypeMatcher(type -> Optional.of(Utils.erase(type))
+        .filter(Class::isRecord)
+        .map(JSONReader.ObjectBuilder::record));
+    reader.addTypeMatcher(type -> Optional.of(type)
+        .flatMap(t -> t instanceof ParameterizedType parameterizedType? Optional.of(parameterizedType): Optional.empty())
+        .filter(t -> t.getRawType() == List.class)
+        .map(t -> JSONReader.ObjectBuilder.list(t.getActualTypeArguments()[0])));
+    return reader;
+  }
+
+  @Test
+  public void toCBORPrimitives() {
+    var writer = new CBORWriter();
+    assertAll(
+        () -> assertEquals("f6", hex(writer.toCBOR(null))),
+        () -> assertEquals("f5", hex(writer.toCBOR(true))),
+        () -> assertEquals("f4", hex(writer.toCBOR(false))),
+        () -> assertEquals("17", hex(writer.toCBOR(23))),
+        () -> assertEquals("1818", hex(writer.toCBOR(24))),
+        () -> assertEquals("1903e8", hex(writer.toCBOR(1000))),
+        () -> assertEquals("1a000f4240", hex(writer.toCBOR(1_000_000))),
+        () -> assertEquals("1b000000e8d4a51000", hex(writer.toCBOR(1_000_000_000_000L))),
+        () -> assertEquals("20", hex(writer.toCBOR(-1))),
+        () -> assertEquals("3863", hex(writer.toCBOR(-100))),
+        () -> assertEquals("fb3ff199999999999a", hex(writer.toCBOR(1.1))),
+        () -> assertEquals("6449455446", hex(writer.toCBOR("IETF"))),
+        () -> assertEquals("83010203", hex(writer.toCBOR(new int[] { 1, 2, 3 }))),
+        () -> assertEquals("a161616162", hex(writer.toCBOR(Map.of("a", "b"))))
+    );
+  }
+
+  public record Address(String street, @JSONProperty("zip-code") int zipCode) { }
+  public record Person(String name, double height, boolean admin, Address address, List<String> tags) { }
+
+  @Test
+  public void toCBORRecordWithJSONProperty() {
+    var writer = new CBORWriter();
+    // {"street": "a", "zip-code": 1}
+    assertEquals("a2667374726565746161687a69702d636f646501", hex(writer.toCBOR(new Address("a", 1))));
+  }
+
+  @Test
+  public void roundTrip() {
+    var writer = new CBORWriter();
+    var person = new Person("Ana", 1.68, true, new Address("21 Jump Street", 75_005), List.of("a", "é"));
+    var data = writer.toCBOR(person);
+    assertEquals(person, reader().parseCBOR(data, Person.class));
+  }
+
+  public static class Bean {
+    private String name;
+    private long id;
+
+    public String getName() {
+      return name;
+    }
+    public void setName(String name) {
+      this.name = name;
+    }
+    public long getId() {
+      return id;
+    }
+    public void setId(long id) {
+      this.id = id;
+    }
+  }
+
+  @Test
+  public void roundTripBean() {
+    var bean = new Bean();
+    bean.setName("Bob");
+    bean.setId(10_000_000_000L);
+    var data = new CBORWriter().toCBOR(bean);
+    var result = new JSONReader().parseCBOR(data, Bean.class);
+    assertAll(
+        () -> assertEquals("Bob", result.getName()),
+        () -> assertEquals(10_000_000_000L, result.getId())
+    );
+  }
+
+  @Test
+  public void smallerThanJSON() {
+    var person = new Person("Ana", 1.68, true, new Address("21 Jump Street", 75_005), List.of("a", "b"));
+    var cbor = new CBORWriter().toCBOR(person);
+    var json = new JSONWriter().toJSON(person).getBytes(StandardCharsets.UTF_8);
+    assertTrue(cbor.length < json.length, cbor.length + " >= " + json.length);
+  }
+
+  @Test
+  public void parseCBORInvalid() {
+    var reader = new JSONReader();
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> reader.parseCBOR(new byte[] { 0x01 }, Bean.class)),
+        () -> assertThrows(IllegalStateException.class, () -> reader.parseCBOR(new byte[] { (byte) 0xA1 }, Bean.class)),
+        () -> assertThrows(IllegalStateException.class, () -> reader.parseCBOR(new byte[0], Bean.class))
+    );
+  }
+
+  @Test
+  public void parseCBORNegativeTextLength() {
+    var reader = new JSONReader();
+    var skippingReader = new JSONReader();
+    skippingReader.setSkipUnknownKeys(true);
+    var negativeKey = HexFormat.of().parseHex("a17bffffffffffffffff");
+    var negativeValue = HexFormat.of().parseHex("a1646e616d657bffffffffffffffff");
+    var negativeSkippedValue = HexFormat.of().parseHex("a161787bffffffffffffffff");
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> reader.parseCBOR(negativeKey, Bean.class)),
+        () -> assertThrows(IllegalStateException.class, () -> reader.parseCBOR(negativeValue, Bean.class)),
+        () -> assertEquals("unexpected end of data at 12",
+            assertThrows(IllegalStateException.class, () -> skippingReader.parseCBOR(negativeSkippedValue, Bean.class)).getMessage())
+    );
+  }
+
+  private static byte[] nestedArrays(int depth) {
+    var data = new byte[depth + 1];
+    Arrays.fill(data, 0, depth, (byte) 0x81);  // array of one element
+    data[depth] = (byte) 0xF6;  // null
+    return data;
+  }
+
+  @Test
+  public void parseCBORMaxDepth() {
+    var visitor = new ToyJSONParser.JSONVisitor() {
+      @Override
+      public void value(String key, Object value) {}
+      @Override
+      public void startObject(String key) {}
+      @Override
+      public void endObject(String key) {}
+      @Override
+      public void startArray(String key) {}
+      @Override
+      public void endArray(String key) {}
+    };
+    CBORParser.parse(nestedArrays(CBORParser.MAX_DEPTH), visitor);
+    var exception = assertThrows(IllegalStateException.class,
+        () -> CBORParser.parse(nestedArrays(CBORParser.MAX_DEPTH + 1), visitor));
+    assertEquals("nesting deeper than " + CBORParser.MAX_DEPTH + " at " + (CBORParser.MAX_DEPTH + 1), exception.getMessage());
+    assertThrows(IllegalStateException.class, () -> CBORParser.parse(nestedArrays(1_000_000), visitor));
+  }
+
+  @Test
+  public void parseCBORMaxDepthSkippedValue() {
+    var reader = new JSONReader();
+    reader.setSkipUnknownKeys(true);
+    var data = new byte[3 + 1_000_000];
+    data[0] = (byte) 0xA1;  // map of one entry
+    data[1] = 0x61;  // text of one byte
+    data[2] = 'x';
+    System.arraycopy(nestedArrays(1_000_000 - 1), 0, data, 3, 1_000_000);
+    var exception = assertThrows(IllegalStateException.class, () -> reader.parseCBOR(data, Bean.class));
+    assertTrue(exception.getMessage().startsWith("nesting deeper than"), exception.getMessage());
+  }
+
+  @Test
+  public void parseCBORPreconditions() {
+    var reader = new JSONReader();
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> reader.parseCBOR(null, Bean.class)),
+        () -> assertThrows(NullPointerException.class, () -> reader.parseCBOR(new byte[0], (Class<?>) null))
+    );
+  }
+}
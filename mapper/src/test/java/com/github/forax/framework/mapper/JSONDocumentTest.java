@@ -0,0 +1,189 @@
+package com.github.forax.framework.mapper;
+
+import com.github.forax.framework.mapper.JSONDocument.Kind;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JSONDocumentTest {
+  private static final String TEXT = """
+      {
+        "name": "Ana",
+        "age": 24,
+        "score": 12.5,
+        "admin": true,
+        "manager": null,
+        "items": [ { "id": 1 }, [2, 3], "four", { "id": 5, "tags": [] } ],
+        "caf\\u00e9": "é\\n"
+      }
+      """;
+
+  @Test
+  public void navigation() {
+    var document = JSONDocument.parse(TEXT);
+    assertAll(
+        () -> assertEquals("Ana", document.get("name").asString()),
+        () -> assertEquals(24, document.get("age").asInt()),
+        () -> assertEquals(24L, document.get("age").asLong()),
+        () -> assertEquals(24.0, document.get("age").asDouble()),
+        () -> assertEquals(12.5, document.get("score").asDouble()),
+        () -> assertTrue(document.get("admin").asBoolean()),
+        () -> assertTrue(document.get("manager").isNull()),
+        () -> assertEquals(1, document.get("items").get(0).get("id").asInt()),
+        () -> assertEquals(3, document.get("items").get(1).get(1).asInt()),
+        () -> assertEquals("four", document.get("items").get(2).asString()),
+        () -> assertEquals(5, document.get("items").get(3).get("id").asInt()),
+        () -> assertEquals("é\n", document.get("café").asString())
+    );
+  }
+
+  @Test
+  public void kindAndSize() {
+    var document = JSONDocument.parse(TEXT);
+    var items = document.get("items");
+    assertAll(
+        () -> assertEquals(Kind.OBJECT, document.root().kind()),
+        () -> assertEquals(7, document.root().size()),
+        () -> assertEquals(Kind.ARRAY, items.kind()),
+        () -> assertEquals(4, items.size()),
+        () -> assertEquals(0, items.get(3).get("tags").size()),
+        () -> assertEquals(Kind.STRING, document.get("name").kind()),
+        () -> assertEquals(Kind.INTEGER, document.get("age").kind()),
+        () -> assertEquals(Kind.DOUBLE, document.get("score").kind()),
+        () -> assertEquals(Kind.TRUE, document.get("admin").kind()),
+        () -> assertEquals(Kind.NULL, document.get("manager").kind())
+    );
+  }
+
+  @Test
+  public void find() {
+    var document = JSONDocument.parse(TEXT);
+    assertAll(
+        () -> assertEquals(Optional.empty(), document.root().find("unknown")),
+        () -> assertEquals(Optional.empty(), document.root().find("nam")),
+        () -> assertEquals("Ana", document.root().find("name").orElseThrow().asString()),
+        () -> assertEquals(24, document.root().find("age").orElseThrow().asInt())
+    );
+  }
+
+  @Test
+  public void rootArray() {
+    var document = JSONDocument.parse("[[], {}, -3000000000, 1e3]".getBytes(StandardCharsets.UTF_8));
+    assertAll(
+        () -> assertEquals(4, document.root().size()),
+        () -> assertEquals(-3_000_000_000L, document.get(2).asLong()),
+        () -> assertEquals(1000.0, document.get(3).asDouble()),
+        () -> assertEquals(0, document.get(1).size())
+    );
+  }
+
+  @Test
+  public void toStringValue() {
+    var document = JSONDocument.parse(TEXT);
+    assertAll(
+        () -> assertEquals("OBJECT of size 7", document.root().toString()),
+        () -> assertEquals("\"Ana\"", document.get("name").toString()),
+        () -> assertEquals("24", document.get("age").toString()),
+        () -> assertEquals("null", document.get("manager").toString())
+    );
+  }
+
+  @Test
+  public void bigDocument() {
+    var builder = new StringBuilder("{ \"items\": [");
+    for (var i = 0; i < 100_000; i++) {
+      builder.append(i == 0 ? "" : ", ").append("{\"id\": ").append(i).append(", \"name\": \"Bob\", \"tags\": [true, null]}");
+    }
+    var document = JSONDocument.parse(builder.append("], \"count\": 100000 }").toString());
+    assertAll(
+        () -> assertEquals(100_000, document.get("count").asInt()),
+        () -> assertEquals(100_000, document.get("items").size()),
+        () -> assertEquals(99_999, document.get("items").get(99_999).get("id").asInt()),
+        () -> assertEquals("Bob", document.get("items").get(50_000).get("name").asString())
+    );
+  }
+
+  @Test
+  public void deepNesting() {
+    var depth = 10_000;
+    var document = JSONDocument.parse("[".repeat(depth) + "42" + "]".repeat(depth));
+    var value = document.root();
+    for (var i = 0; i < depth; i++) {
+      value = value.get(0);
+    }
+    assertEquals(42, value.asInt());
+  }
+
+  @Test
+  public void wrongKind() {
+    var document = JSONDocument.parse(TEXT);
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> document.get("name").asInt()),
+        () -> assertThrows(IllegalStateException.class, () -> document.get("score").asLong()),
+        () -> assertThrows(IllegalStateException.class, () -> document.get("age").asString()),
+        () -> assertThrows(IllegalStateException.class, () -> document.get("age").asBoolean()),
+        () -> assertThrows(IllegalStateException.class, () -> document.get("age").size()),
+        () -> assertThrows(IllegalStateException.class, () -> document.get("items").get("id")),
+        () -> assertThrows(IllegalStateException.class, () -> document.get(0)),
+        () -> assertThrows(IllegalStateException.class, () -> document.get("unknown")),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> document.get("items").get(4)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> document.get("items").get(-1))
+    );
+  }
+
+  @Test
+  public void intOverflow() {
+    var document = JSONDocument.parse("[3000000000]");
+    assertThrows(IllegalStateException.class, () -> document.get(0).asInt());
+  }
+
+  @Test
+  public void invalidDocuments() {
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> JSONDocument.parse("3")),
+        () -> assertThrows(IllegalStateException.class, () -> JSONDocument.parse("{ \"a\" 3 }")),
+        () -> assertThrows(IllegalStateException.class, () -> JSONDocument.parse("[1 2]")),
+        () -> assertThrows(IllegalStateException.class, () -> JSONDocument.parse("[1, }")),
+        () -> assertThrows(IllegalStateException.class, () -> JSONDocument.parse("[1, 2")),
+        () -> assertThrows(IllegalStateException.class, () -> JSONDocument.parse("{ \"a\": \"b }"))
+    );
+  }
+
+  @Test
+  public void valuesAreNotDecodedWhenParsing() {
+    var document = JSONDocument.parse("[1e99999999999, \"\\q\"]");
+    assertAll(
+        () -> assertEquals(2, document.root().size()),
+        () -> assertEquals(Double.POSITIVE_INFINITY, document.get(0).asDouble()),
+        () -> assertThrows(IllegalStateException.class, () -> document.get(1).asString())
+    );
+  }
+
+  @Test
+  public void errorMessageListsTheCloserOfTheCurrentContainer() {
+    assertAll(
+        () -> assertEquals("expect NULL, FALSE, TRUE, INTEGER, DOUBLE, STRING, LEFT_CURLY, LEFT_BRACKET, RIGHT_BRACKET but recognized RIGHT_CURLY at 7",
+            assertThrows(IllegalStateException.class, () -> JSONDocument.parse("{\"a\": [}]}")).getMessage()),
+        () -> assertEquals("expect NULL, FALSE, TRUE, INTEGER, DOUBLE, STRING, LEFT_CURLY, LEFT_BRACKET but recognized RIGHT_CURLY at 6",
+            assertThrows(IllegalStateException.class, () -> JSONDocument.parse("{\"a\": }")).getMessage())
+    );
+  }
+
+  @Test
+  public void preconditions() {
+    var document = JSONDocument.parse(TEXT);
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> JSONDocument.parse((String) null)),
+        () -> assertThrows(NullPointerException.class, () -> JSONDocument.parse((byte[]) null)),
+        () -> assertThrows(NullPointerException.class, () -> document.root().find(null)),
+        () -> assertFalse(document.get("admin").isNull())
+    );
+  }
+}
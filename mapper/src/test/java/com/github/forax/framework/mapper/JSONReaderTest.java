@@ -4,14 +4,24 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -138,6 +148,102 @@ public class JSONReaderTest {
       );
     }
 
+    @Test @Tag("Q1")
+    public void parseJSONIntegerTooLargeForAnInt() {
+      var reader = new JSONReader();
+      var exception = assertThrows(IllegalStateException.class,
+          () -> reader.parseJSON("""
+              { "key4": 3000000000 }
+              """, PrimitiveBean.class));
+      assertAll(
+          () -> assertTrue(exception.getMessage().contains("integer 3000000000 does not fit in an int for key key4")),
+          () -> assertTrue(exception.getMessage().contains("while parsing"))
+      );
+    }
+
+    public record Counters(int small, long big, Long boxed) { }
+
+    @Test @Tag("Q1")
+    public void parseJSONRecordIntegers() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(type -> Optional.of(Utils.erase(type)).filter(Class::isRecord).map(JSONReader.ObjectBuilder::record));
+      assertAll(
+          () -> assertEquals(new Counters(1, 2L, 3L),
+              reader.parseJSON("""
+                  { "small": 1, "big": 2, "boxed": 3 }
+                  """, Counters.class)),
+          () -> assertEquals(new Counters(1, 3_000_000_000L, -3_000_000_000L),
+              reader.parseJSON("""
+                  { "small": 1, "big": 3000000000, "boxed": -3000000000 }
+                  """, Counters.class)),
+          () -> assertThrows(IllegalStateException.class,
+              () -> reader.parseJSON("""
+                  { "small": 3000000000 }
+                  """, Counters.class))
+      );
+    }
+
+    public record SmallNumbers(byte b, Byte boxedByte, short s, Short boxedShort,
+                               float f, Float boxedFloat, double d, Double boxedDouble) { }
+
+    @Test @Tag("Q1")
+    public void parseJSONRecordSmallAndFloatingIntegers() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(type -> Optional.of(Utils.erase(type)).filter(Class::isRecord).map(JSONReader.ObjectBuilder::record));
+      assertAll(
+          () -> assertEquals(new SmallNumbers((byte) -128, (byte) 127, (short) -32768, (short) 32767, 1f, 2f, 3.0, 3_000_000_000.0),
+              reader.parseJSON("""
+                  { "b": -128, "boxedByte": 127, "s": -32768, "boxedShort": 32767,
+                    "f": 1, "boxedFloat": 2, "d": 3, "boxedDouble": 3000000000 }
+                  """, SmallNumbers.class)),
+          () -> assertTrue(assertThrows(IllegalStateException.class, () -> reader.parseJSON("""
+                  { "b": 128 }
+                  """, SmallNumbers.class)).getMessage().contains("integer 128 does not fit in a byte for key b")),
+          () -> assertTrue(assertThrows(IllegalStateException.class, () -> reader.parseJSON("""
+                  { "boxedByte": -129 }
+                  """, SmallNumbers.class)).getMessage().contains("integer -129 does not fit in a byte for key boxedByte")),
+          () -> assertTrue(assertThrows(IllegalStateException.class, () -> reader.parseJSON("""
+                  { "s": 32768 }
+                  """, SmallNumbers.class)).getMessage().contains("integer 32768 does not fit in a short for key s")),
+          () -> assertTrue(assertThrows(IllegalStateException.class, () -> reader.parseJSON("""
+                  { "boxedShort": 3000000000 }
+                  """, SmallNumbers.class)).getMessage().contains("integer 3000000000 does not fit in a short for key boxedShort"))
+      );
+    }
+
+    public static class BoxedBean {
+      private Short count;
+      private Double ratio;
+
+      public Short getCount() {
+        return count;
+      }
+      public void setCount(Short count) {
+        this.count = count;
+      }
+      public Double getRatio() {
+        return ratio;
+      }
+      public void setRatio(Double ratio) {
+        this.ratio = ratio;
+      }
+    }
+
+    @Test @Tag("Q1")
+    public void parseJSONBeanBoxedIntegers() {
+      var reader = new JSONReader();
+      var bean = reader.parseJSON("""
+          { "count": 12, "ratio": 2 }
+          """, BoxedBean.class);
+      assertAll(
+          () -> assertEquals((short) 12, bean.count),
+          () -> assertEquals(2.0, bean.ratio),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseJSON("""
+              { "count": 40000 }
+              """, BoxedBean.class))
+      );
+    }
+
     @Test @Tag("Q1")
     public void parseJSONInvalidKey() {
       var reader = new JSONReader();
@@ -560,4 +666,545 @@ public class JSONReaderTest {
 
   }  // end of Q7
 
-}
\ No newline at end of file
+  public sealed interface Shape permits Circle, Square, Polygon { }
+  public record Circle(double radius) implements Shape { }
+  public record Square(double side) implements Shape { }
+  public sealed interface Polygon extends Shape permits Triangle { }
+  public record Triangle(double a, double b, double c) implements Polygon { }
+  public record Drawing(String title, List<Shape> shapes, Shape background) { }
+  public sealed interface Animal permits Dog, Pet { }
+  public record Dog(String name) implements Animal { }
+  public non-sealed interface Pet extends Animal { }
+  public record Cat(String name) implements Pet { }
+  public sealed interface Vehicle permits Car { }
+  public static sealed class Car implements Vehicle permits Truck {
+    private String name;
+
+    public String getName() {
+      return name;
+    }
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Car car && getClass() == car.getClass() && Objects.equals(name, car.name);
+    }
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(name);
+    }
+  }
+  public static final class Truck extends Car {
+    private int load;
+
+    public int getLoad() {
+      return load;
+    }
+    public void setLoad(int load) {
+      this.load = load;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return super.equals(o) && load == ((Truck) o).load;
+    }
+    @Override
+    public int hashCode() {
+      return super.hashCode() ^ load;
+    }
+  }
+
+  @Nested
+  public class Sealed {
+    private static JSONReader reader() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(Q5.listTypeMatcher());
+      reader.addTypeMatcher(type -> Optional.of(Utils.erase(type)).filter(Class::isRecord).map(JSONReader.ObjectBuilder::record));
+      return reader;
+    }
+
+    @Test @Tag("Sealed")
+    public void toJSONWritesTheDiscriminator() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals("""
+              {"@type": "Circle", "radius": 1.0}\
+              """, writer.toJSON(new Circle(1))),
+          () -> assertEquals("""
+              {"@type": "Triangle", "a": 3.0, "b": 4.0, "c": 5.0}\
+              """, writer.toJSON(new Triangle(3, 4, 5)))
+      );
+    }
+
+    @Test @Tag("Sealed")
+    public void parseJSONSealedInterface() {
+      var shape = reader().parseJSON("""
+          {"@type": "Square", "side": 2.0}
+          """, Shape.class);
+      assertEquals(new Square(2), shape);
+    }
+
+    @Test @Tag("Sealed")
+    public void roundTrip() {
+      var drawing = new Drawing("sketch", List.of(new Circle(1), new Square(2), new Triangle(3, 4, 5)), new Square(10));
+      var writer = new JSONWriter();
+      writer.setCompiledMode(true);
+      assertAll(
+          () -> assertEquals(drawing, reader().parseJSON(writer.toJSON(drawing), Drawing.class)),
+          () -> assertEquals(drawing, reader().parseCBOR(new CBORWriter().toCBOR(drawing), Drawing.class))
+      );
+    }
+
+    @Test @Tag("Sealed")
+    public void parseJSONSubInterface() {
+      var shape = reader().parseJSON("""
+          {"@type": "Triangle", "a": 3.0, "b": 4.0, "c": 5.0}
+          """, Polygon.class);
+      assertEquals(new Triangle(3, 4, 5), shape);
+    }
+
+    @Test @Tag("Sealed")
+    public void roundTripConcreteSubclass() {
+      var writer = new JSONWriter();
+      var reader = reader();
+      reader.setSkipUnknownKeys(false);
+      assertAll(
+          () -> assertEquals(new Circle(3), reader.parseJSON(writer.toJSON(new Circle(3)), Circle.class)),
+          () -> assertEquals(new Triangle(3, 4, 5), reader.parseJSON(writer.toJSON(new Triangle(3, 4, 5)), Triangle.class)),
+          () -> assertEquals(new Triangle(3, 4, 5), reader.parseJSON(writer.toJSON(new Triangle(3, 4, 5)), Polygon.class))
+      );
+    }
+
+    @Test @Tag("Sealed")
+    public void subclassBuilderIsResolvedOnce() {
+      var circleLookups = new int[1];
+      var reader = reader();
+      reader.addTypeMatcher(type -> {
+        if (type == Circle.class) {
+          circleLookups[0]++;
+        }
+        return Optional.empty();
+      });
+      var drawing = new Drawing("dots", List.of(new Circle(1), new Circle(2), new Circle(3)), new Circle(4));
+      assertAll(
+          () -> assertEquals(drawing, reader.parseJSON(new JSONWriter().toJSON(drawing), Drawing.class)),
+          () -> assertEquals(1, circleLookups[0])
+      );
+    }
+
+    @Test @Tag("Sealed")
+    public void nonSealedHierarchyIsRejected() {
+      assertThrows(IllegalStateException.class, () -> reader().parseJSON("""
+          {"@type": "Dog", "name": "Rex"}
+          """, Animal.class));
+    }
+
+    @Test @Tag("Sealed")
+    public void nonSealedBranchHasNoDiscriminator() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals("""
+              {"name": "Tom"}\
+              """, writer.toJSON(new Cat("Tom"))),
+          () -> assertEquals(new Cat("Tom"), reader().parseJSON(writer.toJSON(new Cat("Tom")), Cat.class)),
+          () -> assertEquals(new Dog("Rex"), reader().parseJSON(writer.toJSON(new Dog("Rex")), Dog.class))
+      );
+    }
+
+    @Test @Tag("Sealed")
+    public void roundTripConcreteSealedSubclass() {
+      var writer = new JSONWriter();
+      var car = new Car();
+      car.setName("beetle");
+      var truck = new Truck();
+      truck.setName("unimog");
+      truck.setLoad(4);
+      assertAll(
+          () -> assertTrue(writer.toJSON(car).startsWith("""
+              {"@type": "Car",\
+              """)),
+          () -> assertEquals(car, reader().parseJSON(writer.toJSON(car), Vehicle.class)),
+          () -> assertEquals(truck, reader().parseJSON(writer.toJSON(truck), Vehicle.class)),
+          () -> assertEquals(car, reader().parseJSON(writer.toJSON(car), Car.class))
+      );
+    }
+
+    @Test @Tag("Sealed")
+    public void parseJSONUnknownType() {
+      assertThrows(IllegalStateException.class, () -> reader().parseJSON("""
+          {"@type": "Hexagon", "side": 2.0}
+          """, Shape.class));
+    }
+
+    @Test @Tag("Sealed")
+    public void parseJSONMissingDiscriminator() {
+      assertThrows(IllegalStateException.class, () -> reader().parseJSON("""
+          {"side": 2.0, "@type": "Square"}
+          """, Shape.class));
+    }
+
+    @Test @Tag("Sealed")
+    public void roundTripUTF8() {
+      var drawing = new Drawing("ébauche", List.of(new Circle(1), new Triangle(3, 4, 5)), new Square(10));
+      var bytes = new JSONWriter().toUTF8(drawing);
+      assertAll(
+          () -> assertEquals(drawing, reader().parseUTF8(bytes, Drawing.class)),
+          () -> assertEquals(drawing, reader().parseUTF8(ByteBuffer.wrap(bytes), Drawing.class))
+      );
+    }
+
+    @Test @Tag("Sealed")
+    public void roundTripStream() throws IOException {
+      var drawing = new Drawing("ébauche", List.of(new Circle(1), new Triangle(3, 4, 5)), new Square(10));
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals(drawing, reader().readJSON(new ByteArrayInputStream(writer.toUTF8(drawing)), Drawing.class)),
+          () -> assertEquals(drawing, reader().readJSON(new StringReader(writer.toJSON(drawing)), Drawing.class))
+      );
+    }
+  }  // end of Sealed
+
+
+  public record Item(int id, String name) { }
+  public record Order(String customer, List<Item> items) { }
+
+  @Nested
+  public class Skip {
+    @SuppressWarnings("unused")
+    public static class Person {
+      private String name;
+      private Address address;
+
+      public void setName(String name) {
+        this.name = name;
+      }
+      public void setAddress(Address address) {
+        this.address = address;
+      }
+    }
+    @SuppressWarnings("unused")
+    public static class Address {
+      private String city;
+
+      public void setCity(String city) {
+        this.city = city;
+      }
+    }
+
+    private static final String PERSON = """
+        {
+          "id": 42,
+          "name": "Ana",
+          "friends": [ { "name": "Bob", "friends": [] }, "Carl" ],
+          "address": { "zipCode": "75001", "city": "Paris", "geo": { "lat": 48.8, "lon": 2.3 } },
+          "admin": true
+        }
+        """;
+
+    private static JSONReader reader() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(Q5.listTypeMatcher());
+      reader.addTypeMatcher(type -> Optional.of(Utils.erase(type)).filter(Class::isRecord).map(c -> JSONReader.ObjectBuilder.record(c, true)));
+      return reader;
+    }
+
+    @Test @Tag("Skip")
+    public void skipUnknownKeysOfBeans() {
+      var reader = new JSONReader();
+      reader.setSkipUnknownKeys(true);
+      var person = reader.parseJSON(PERSON, Person.class);
+      assertAll(
+          () -> assertEquals("Ana", person.name),
+          () -> assertEquals("Paris", person.address.city)
+      );
+    }
+
+    @Test @Tag("Skip")
+    public void unknownKeysAreAnErrorByDefault() {
+      var reader = new JSONReader();
+      assertThrows(IllegalStateException.class, () -> reader.parseJSON(PERSON, Person.class));
+    }
+
+    @Test @Tag("Skip")
+    public void skipUnknownKeysOfRecords() {
+      var order = reader().parseJSON("""
+          { "customer": "Ana", "date": [2024, 1, 1], "items": [ { "id": 1, "name": "pen", "price": 2.5 } ] }
+          """, Order.class);
+      assertEquals(new Order("Ana", List.of(new Item(1, "pen"))), order);
+    }
+
+    @Test @Tag("Skip")
+    public void skippedValuesAreNotDecoded() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(type -> Optional.of(Utils.erase(type))
+          .filter(Item.class::equals)
+          .map(c -> JSONReader.ObjectBuilder.record(c, true)));
+      var item = reader.parseJSON("""
+          { "id": 1, "name": "pen", "notes": ["\\q", 1e99999999999, { "x": "\\u" }] }
+          """, Item.class);
+      assertEquals(new Item(1, "pen"), item);
+    }
+
+    @Test @Tag("Skip")
+    public void skipUnknownKeysCBOR() {
+      var data = new CBORWriter().toCBOR(new Drawing("sketch", List.of(new Circle(1)), new Square(2)));
+      var reader = new JSONReader();
+      reader.addTypeMatcher(type -> Optional.of(Utils.erase(type))
+          .filter(Drawing.class::equals)
+          .map(c -> new JSONReader.ObjectBuilder<>(
+              key -> key.equals("title") ? String.class : JSONReader.ObjectBuilder.SKIP,
+              () -> new String[1],
+              (instance, key, value) -> instance[0] = (String) value,
+              instance -> instance[0])));
+      assertEquals("sketch", reader.parseCBOR(data, (Type) Drawing.class));
+    }
+
+    @Test @Tag("Skip")
+    public void nullTypeIsNotSkipped() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(type -> Optional.of(new JSONReader.ObjectBuilder<>(
+          key -> null,
+          HashMap<String, Object>::new,
+          (instance, key, value) -> instance.put(key, value),
+          Map::copyOf)));
+      assertEquals(Map.of("foo", 3, "bar", "x"), reader.parseJSON("""
+          {"foo": 3, "bar": "x"}
+          """, Object.class));
+    }
+
+    @Test @Tag("Skip")
+    public void typeProviderCalledOncePerKey() {
+      var keys = new ArrayList<String>();
+      var reader = new JSONReader();
+      reader.addTypeMatcher(type -> Optional.of(new JSONReader.ObjectBuilder<>(
+          key -> {
+            keys.add(key);
+            return key.equals("skipped") ? JSONReader.ObjectBuilder.SKIP : Object.class;
+          },
+          () -> null,
+          (instance, key, value) -> {},
+          instance -> "done")));
+      reader.parseJSON("""
+          {"a": 1, "b": {"c": 2}, "skipped": {"d": 3}, "e": [4]}
+          """, Object.class);
+      assertEquals(List.of("a", "b", "c", "skipped", "e"), keys);
+    }
+
+    @Test @Tag("Skip")
+    public void selectValues() {
+      var reader = new JSONReader();
+      var text = """
+          { "items": [ { "id": 1, "tags": ["a"] }, { "id": 2, "tags": [] }, { "tags": ["b", "c"] } ], "id": 0 }
+          """;
+      assertAll(
+          () -> assertEquals(List.of(1, 2), reader.select(text, JSONPath.compile("$.items[*].id"), Integer.class)),
+          () -> assertEquals(List.of(2), reader.select(text, JSONPath.compile("$.items[1].id"), Integer.class)),
+          () -> assertEquals(List.of(0), reader.select(text, JSONPath.compile("$['id']"), Integer.class)),
+          () -> assertEquals(List.of("a", "b"), reader.select(text, JSONPath.compile("$.items[*].tags[0]"), String.class)),
+          () -> assertEquals(List.of("b", "c"), reader.select(text, JSONPath.compile("$.items[2].tags.*"), String.class)),
+          () -> assertEquals(List.of(), reader.select(text, JSONPath.compile("$.unknown[*].id"), Integer.class)),
+          () -> assertEquals(List.of(), reader.select(text, JSONPath.compile("$.id.id"), Integer.class))
+      );
+    }
+
+    @Test @Tag("Skip")
+    public void selectObjects() {
+      var text = """
+          { "customer": "Ana", "items": [ { "id": 1, "name": "pen" }, { "id": 2, "name": "ink" } ] }
+          """;
+      assertAll(
+          () -> assertEquals(List.of(new Item(1, "pen"), new Item(2, "ink")),
+              reader().select(text, JSONPath.compile("$.items[*]"), Item.class)),
+          () -> assertEquals(List.of(new Order("Ana", List.of(new Item(1, "pen"), new Item(2, "ink")))),
+              reader().select(text, JSONPath.compile("$"), Order.class))
+      );
+    }
+
+    @Test @Tag("Skip")
+    public void selectNull() {
+      var reader = new JSONReader();
+      var list = reader.select("[1, null, 3]", JSONPath.compile("$[*]"), Integer.class);
+      assertEquals(java.util.Arrays.asList(1, null, 3), list);
+    }
+
+    @Test @Tag("Skip")
+    public void compileErrors() {
+      assertAll(
+          () -> assertThrows(IllegalArgumentException.class, () -> JSONPath.compile("items")),
+          () -> assertThrows(IllegalArgumentException.class, () -> JSONPath.compile("$.")),
+          () -> assertThrows(IllegalArgumentException.class, () -> JSONPath.compile("$[1")),
+          () -> assertThrows(IllegalArgumentException.class, () -> JSONPath.compile("$[-1]")),
+          () -> assertThrows(IllegalArgumentException.class, () -> JSONPath.compile("$[foo]")),
+          () -> assertThrows(IllegalArgumentException.class, () -> JSONPath.compile("$x")),
+          () -> assertThrows(NullPointerException.class, () -> JSONPath.compile(null))
+      );
+    }
+
+    @Test @Tag("Skip")
+    public void selectPrecondition() {
+      var reader = new JSONReader();
+      var path = JSONPath.compile("$");
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> reader.select(null, path, Object.class)),
+          () -> assertThrows(NullPointerException.class, () -> reader.select("{}", null, Object.class)),
+          () -> assertThrows(NullPointerException.class, () -> reader.select("{}", path, (Type) null))
+      );
+    }
+  }  // end of Skip
+
+
+  @Nested
+  public class Parallel {
+    private static JSONReader reader() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(type -> Optional.of(Utils.erase(type)).filter(Class::isRecord).map(JSONReader.ObjectBuilder::record));
+      return reader;
+    }
+
+    private static List<Item> items(int count) {
+      return IntStream.range(0, count).mapToObj(i -> new Item(i, "item, [" + i + "]")).toList();
+    }
+
+    private static byte[] ndjson(List<Item> items) {
+      var writer = new JSONWriter();
+      return items.stream()
+          .map(writer::toJSON)
+          .collect(Collectors.joining("\n", "", "\n"))
+          .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test @Tag("Parallel")
+    public void ndjsonOrdered() {
+      var items = items(50_000);
+      var stream = reader().parseNdjson(ndjson(items), Item.class);
+      assertAll(
+          () -> assertTrue(stream.isParallel()),
+          () -> assertEquals(items, stream.toList())
+      );
+    }
+
+    @Test @Tag("Parallel")
+    public void ndjsonUnordered() {
+      var items = items(50_000);
+      var set = reader().parseNdjson(ndjson(items), Item.class)
+          .unordered()
+          .collect(Collectors.toSet());
+      assertEquals(Set.copyOf(items), set);
+    }
+
+    @Test @Tag("Parallel")
+    public void ndjsonBlankLines() {
+      var text = "\n{ \"id\": 1, \"name\": \"a\" }\r\n  \n\n{ \"id\": 2, \"name\": \"b\" }";
+      assertEquals(
+          List.of(new Item(1, "a"), new Item(2, "b")),
+          reader().parseNdjson(text.getBytes(StandardCharsets.UTF_8), Item.class).toList());
+    }
+
+    @Test @Tag("Parallel")
+    public void ndjsonDirectBuffer() {
+      var items = items(10_000);
+      var bytes = ndjson(items);
+      var buffer = ByteBuffer.allocateDirect(bytes.length + 10).position(10);
+      buffer.put(bytes).position(10);
+      assertAll(
+          () -> assertEquals(items, reader().parseNdjson(buffer, Item.class).toList()),
+          () -> assertEquals(10, buffer.position())
+      );
+    }
+
+    @Test @Tag("Parallel")
+    public void ndjsonInvalidLine() {
+      var text = "{ \"id\": 1, \"name\": \"a\" }\n{ \"id\": 2, \"name\": }\n";
+      var e = assertThrows(IllegalStateException.class,
+          () -> reader().parseNdjson(text.getBytes(StandardCharsets.UTF_8), Item.class).toList());
+      assertEquals("invalid line at 25", e.getMessage());
+    }
+
+    @Test @Tag("Parallel")
+    public void arrayOrdered() {
+      var items = items(50_000);
+      var bytes = new JSONWriter().toUTF8(items);
+      var stream = reader().parseJSONArray(bytes, Item.class);
+      assertAll(
+          () -> assertTrue(stream.isParallel()),
+          () -> assertEquals(items, stream.toList())
+      );
+    }
+
+    @Test @Tag("Parallel")
+    public void arrayUnordered() {
+      var items = items(50_000);
+      var set = reader().parseJSONArray(new JSONWriter().toUTF8(items), Item.class)
+          .unordered()
+          .collect(Collectors.toSet());
+      assertEquals(Set.copyOf(items), set);
+    }
+
+    @Test @Tag("Parallel")
+    public void arrayNestedAndEscaped() {
+      var text = """
+          [ { "id": 1, "name": "a\\"}]," }, {"name": "[{", "id": 2} ,{ "id" : 3, "name": "" } ]
+          """;
+      assertAll(
+          () -> assertEquals(
+              List.of(new Item(1, "a\"}],"), new Item(2, "[{"), new Item(3, "")),
+              reader().parseJSONArray(text.getBytes(StandardCharsets.UTF_8), Item.class).toList()),
+          () -> assertEquals(
+              List.of(),
+              reader().parseJSONArray(" [ ] ".getBytes(StandardCharsets.UTF_8), Item.class).toList())
+      );
+    }
+
+    @Test @Tag("Parallel")
+    public void arrayOfArrays() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(Q5.listTypeMatcher());
+      var type = new ParameterizedType() {
+        @Override
+        public Type[] getActualTypeArguments() {
+          return new Type[] { Integer.class };
+        }
+        @Override
+        public Type getRawType() {
+          return List.class;
+        }
+        @Override
+        public Type getOwnerType() {
+          return null;
+        }
+      };
+      assertEquals(
+          List.of(List.of(1, 2), List.of(), List.of(3)),
+          reader.parseJSONArray("[[1, 2], [], [3]]".getBytes(StandardCharsets.UTF_8), type).toList());
+    }
+
+    @Test @Tag("Parallel")
+    public void arrayErrors() {
+      var reader = reader();
+      assertAll(
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseJSONArray("{}".getBytes(StandardCharsets.UTF_8), Item.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseJSONArray("".getBytes(StandardCharsets.UTF_8), Item.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseJSONArray("[{}".getBytes(StandardCharsets.UTF_8), Item.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseJSONArray("[{}}".getBytes(StandardCharsets.UTF_8), Item.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseJSONArray("[{},]".getBytes(StandardCharsets.UTF_8), Item.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseJSONArray("[, {}]".getBytes(StandardCharsets.UTF_8), Item.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseJSONArray("[{}] []".getBytes(StandardCharsets.UTF_8), Item.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseJSONArray("[1, 2]".getBytes(StandardCharsets.UTF_8), Item.class).toList())
+      );
+    }
+
+    @Test @Tag("Parallel")
+    public void preconditions() {
+      var reader = reader();
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> reader.parseNdjson((byte[]) null, Item.class)),
+          () -> assertThrows(NullPointerException.class, () -> reader.parseNdjson((ByteBuffer) null, Item.class)),
+          () -> assertThrows(NullPointerException.class, () -> reader.parseNdjson(new byte[0], (Type) null)),
+          () -> assertThrows(NullPointerException.class, () -> reader.parseJSONArray(null, Item.class)),
+          () -> assertThrows(NullPointerException.class, () -> reader.parseJSONArray(new byte[0], (Type) null))
+      );
+    }
+  }  // end of Parallel
+}
@@ -0,0 +1,250 @@
+package com.github.forax.framework.mapper;
+
+import com.github.forax.framework.mapper.JSONStreamReader.Kind;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.github.forax.framework.mapper.JSONStreamReader.Kind.*;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JSONStreamReaderTest {
+  private static List<String> events(JSONStreamReader reader) {
+    var events = new ArrayList<String>();
+    Kind kind;
+    while ((kind = reader.next()) != END_DOCUMENT) {
+      events.add(reader.currentKey() + ":" + kind + "@" + reader.depth());
+    }
+    return events;
+  }
+
+  private static final String TEXT = """
+      { "name": "Ana", "age": 24, "tags": ["a", 1.5], "address": { "zip": null }, "admin": true }
+      """;
+
+  @Test
+  public void nextAndCurrentKey() {
+    assertEquals(List.of(
+        "null:START_OBJECT@1",
+        "name:STRING@1",
+        "age:INTEGER@1",
+        "tags:START_ARRAY@2",
+        "null:STRING@2",
+        "null:DOUBLE@2",
+        "tags:END_ARRAY@1",
+        "address:START_OBJECT@2",
+        "zip:NULL@2",
+        "address:END_OBJECT@1",
+        "admin:TRUE@1",
+        "null:END_OBJECT@0"
+    ), events(JSONStreamReader.of(TEXT)));
+  }
+
+  @Test
+  public void allInputsGiveTheSameEvents() {
+    var expected = events(JSONStreamReader.of(TEXT));
+    var bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+    assertAll(
+        () -> assertEquals(expected, events(JSONStreamReader.of(bytes))),
+        () -> assertEquals(expected, events(JSONStreamReader.of(new StringReader(TEXT)))),
+        () -> assertEquals(expected, events(JSONStreamReader.of(new ByteArrayInputStream(bytes))))
+    );
+  }
+
+  @Test
+  public void values() {
+    var reader = JSONStreamReader.of("""
+        [ "é\\"", 42, -3000000000, 2.5, 1e3, true, false ]
+        """);
+    assertEquals(START_ARRAY, reader.next());
+    assertEquals(STRING, reader.next());
+    assertEquals("é\"", reader.stringValue());
+    assertEquals(INTEGER, reader.next());
+    assertAll(
+        () -> assertEquals(42, reader.intValue()),
+        () -> assertEquals(42L, reader.longValue()),
+        () -> assertEquals(42.0, reader.doubleValue())
+    );
+    assertEquals(INTEGER, reader.next());
+    assertAll(
+        () -> assertEquals(-3_000_000_000L, reader.longValue()),
+        () -> assertThrows(IllegalStateException.class, reader::intValue)
+    );
+    assertEquals(DOUBLE, reader.next());
+    assertEquals(2.5, reader.doubleValue());
+    assertEquals(DOUBLE, reader.next());
+    assertEquals(1000.0, reader.doubleValue());
+    assertEquals(TRUE, reader.next());
+    assertTrue(reader.booleanValue());
+    assertEquals(FALSE, reader.next());
+    assertFalse(reader.booleanValue());
+    assertEquals(END_ARRAY, reader.next());
+    assertEquals(END_DOCUMENT, reader.next());
+  }
+
+  @Test
+  public void valueOfTheWrongKind() {
+    var reader = JSONStreamReader.of("[ \"foo\" ]");
+    reader.next();
+    reader.next();
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, reader::intValue),
+        () -> assertThrows(IllegalStateException.class, reader::doubleValue),
+        () -> assertThrows(IllegalStateException.class, reader::booleanValue)
+    );
+  }
+
+  @Test
+  public void doubleValueIsCorrectlyRounded() {
+    var random = new Random(0);
+    var numbers = new ArrayList<String>();
+    for (var i = 0; i < 10_000; i++) {
+      numbers.add(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(-30, 30))));
+      numbers.add(random.nextInt(1_000_000) + "." + random.nextInt(1_000_000));
+      numbers.add(random.nextInt(1_000) + "e" + random.nextInt(-25, 25));
+    }
+    numbers.add("-0.0");
+    numbers.add("123456789012345678901234567890.5");
+    var reader = JSONStreamReader.of("[" + String.join(", ", numbers) + "]");
+    reader.next();
+    for (var number : numbers) {
+      var kind = reader.next();
+      assertTrue(kind == DOUBLE || kind == INTEGER);
+      assertEquals(Double.parseDouble(number), reader.doubleValue(), number);
+    }
+  }
+
+  @Test
+  public void skipChildren() {
+    var reader = JSONStreamReader.of(TEXT);
+    reader.next();
+    String name = null;
+    var admin = false;
+    while (reader.next() != END_OBJECT) {
+      switch (reader.currentKey()) {
+        case "name" -> name = reader.stringValue();
+        case "admin" -> admin = reader.booleanValue();
+        default -> reader.skipChildren();
+      }
+    }
+    assertEquals("Ana", name);
+    assertTrue(admin);
+    assertEquals(END_DOCUMENT, reader.next());
+  }
+
+  @Test
+  public void skipChildrenCurrentElement() {
+    var reader = JSONStreamReader.of(TEXT);
+    reader.next();
+    reader.next();
+    reader.next();
+    assertEquals(START_ARRAY, reader.next());
+    reader.skipChildren();
+    assertAll(
+        () -> assertEquals(END_ARRAY, reader.currentKind()),
+        () -> assertEquals("tags", reader.currentKey()),
+        () -> assertEquals(1, reader.depth()),
+        () -> assertEquals(START_OBJECT, reader.next()),
+        () -> assertEquals("address", reader.currentKey())
+    );
+  }
+
+  @Test
+  public void skipChildrenMismatchedBrackets() {
+    for (var text : new String[] { "{\"a\": [}}", "{\"a\": [[}]]}", "{\"a\": {\"b\": {]}}}" }) {
+      var reader = JSONStreamReader.of(text);
+      reader.next();
+      reader.next();
+      assertThrows(IllegalStateException.class, reader::skipChildren, text);
+    }
+  }
+
+  @Test
+  public void skipChildrenDeepNesting() {
+    var depth = 1_000;
+    var reader = JSONStreamReader.of("{\"a\": " + "[{\"b\": ".repeat(depth) + "0" + "}]".repeat(depth) + ", \"c\": 1}");
+    reader.next();
+    assertEquals(START_ARRAY, reader.next());
+    reader.skipChildren();
+    assertAll(
+        () -> assertEquals(END_ARRAY, reader.currentKind()),
+        () -> assertEquals(INTEGER, reader.next()),
+        () -> assertEquals("c", reader.currentKey()),
+        () -> assertEquals(END_OBJECT, reader.next())
+    );
+  }
+
+  @Test
+  public void stopEarly() {
+    var reader = JSONStreamReader.of("[1, 2, {");
+    assertAll(
+        () -> assertEquals(START_ARRAY, reader.next()),
+        () -> assertEquals(INTEGER, reader.next()),
+        () -> assertEquals(1, reader.intValue())
+    );
+  }
+
+  @Test
+  public void deepNesting() {
+    var depth = 10_000;
+    var reader = JSONStreamReader.of("[".repeat(depth) + "]".repeat(depth));
+    for (var i = 0; i < depth; i++) {
+      assertEquals(START_ARRAY, reader.next());
+    }
+    assertEquals(depth, reader.depth());
+    for (var i = 0; i < depth; i++) {
+      assertEquals(END_ARRAY, reader.next());
+    }
+    assertEquals(END_DOCUMENT, reader.next());
+  }
+
+  @Test
+  public void currentKindBeforeNext() {
+    var reader = JSONStreamReader.of("{}");
+    assertAll(
+        () -> assertNull(reader.currentKind()),
+        () -> assertNull(reader.currentKey()),
+        () -> assertEquals(0, reader.depth())
+    );
+  }
+
+  @Test
+  public void errors() {
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> events(JSONStreamReader.of("3"))),
+        () -> assertThrows(IllegalStateException.class, () -> events(JSONStreamReader.of("{ \"a\" 3 }"))),
+        () -> assertThrows(IllegalStateException.class, () -> events(JSONStreamReader.of("[1 2]"))),
+        () -> assertThrows(IllegalStateException.class, () -> events(JSONStreamReader.of("[1, }")))
+    );
+  }
+
+  @Test
+  public void errorMessageListsTheCloserOfTheCurrentContainer() {
+    assertAll(
+        () -> assertEquals("expect NULL, FALSE, TRUE, INTEGER, DOUBLE, STRING, LEFT_CURLY, LEFT_BRACKET, RIGHT_BRACKET but recognized RIGHT_CURLY at 1",
+            assertThrows(IllegalStateException.class, () -> events(JSONStreamReader.of("[}"))).getMessage()),
+        () -> assertEquals("expect NULL, FALSE, TRUE, INTEGER, DOUBLE, STRING, LEFT_CURLY, LEFT_BRACKET but recognized RIGHT_BRACKET at 4",
+            assertThrows(IllegalStateException.class, () -> events(JSONStreamReader.of("[1, ]"))).getMessage()),
+        () -> assertEquals("expect NULL, FALSE, TRUE, INTEGER, DOUBLE, STRING, LEFT_CURLY, LEFT_BRACKET but recognized RIGHT_CURLY at 6",
+            assertThrows(IllegalStateException.class, () -> events(JSONStreamReader.of("{\"a\": }"))).getMessage())
+    );
+  }
+
+  @Test
+  public void preconditions() {
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> JSONStreamReader.of((String) null)),
+        () -> assertThrows(NullPointerException.class, () -> JSONStreamReader.of((byte[]) null))
+    );
+  }
+}
@@ -4,14 +4,57 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+import java.beans.SimpleBeanInfo;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousByteChannel;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ShutdownChannelGroupException;
+import java.nio.channels.WritePendingException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.MonthDay;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -138,7 +181,6 @@ public class JSONWriterTest {
     }
   }
 
-/*
   @Nested
   public class Q5 {
     @Test @Tag("Q5")
@@ -175,8 +217,43 @@ public class JSONWriterTest {
       );
     }
 
+    @Test @Tag("Q5")
+    public void configureAfterUse() {
+      var writer = new JSONWriter();
+      var time = LocalTime.of(20, 7);
+      writer.toJSON(time);
+      writer.configure(LocalTime.class, __ -> "\"foo\"");
+      assertEquals("\"foo\"", writer.toJSON(time));
+    }
+
+    @Test @Tag("Q5")
+    public void configureIsPerWriter() {
+      var writer = new JSONWriter();
+      writer.configure(UUID.class, uuid -> writer.toJSON(uuid.toString()));
+      var uuid = new UUID(0, 42);
+      assertAll(
+          () -> assertEquals("\"00000000-0000-0000-0000-00000000002a\"", writer.toJSON(uuid)),
+          () -> assertEquals("{\"leastSignificantBits\": 42, \"mostSignificantBits\": 0}", new JSONWriter().toJSON(uuid))
+      );
+    }
+
+    @Test @Tag("Q5")
+    public void configuredWriterCanBeCollected() throws InterruptedException {
+      var references = new ArrayList<WeakReference<JSONWriter>>();
+      for (var i = 0; i < 100; i++) {
+        var writer = new JSONWriter();
+        writer.configure(UUID.class, uuid -> writer.toJSON(uuid.toString()));
+        writer.toJSON(new UUID(0, i));
+        references.add(new WeakReference<>(writer));
+      }
+      for (var i = 0; i < 50 && references.stream().anyMatch(reference -> reference.get() != null); i++) {
+        System.gc();
+        Thread.sleep(10);
+      }
+      assertTrue(references.stream().allMatch(reference -> reference.get() == null));
+    }
   } // end of Q5
-*/
+
   @Nested
   public class Q6 {
     @Test @Tag("Q6")
@@ -238,7 +315,6 @@ public class JSONWriterTest {
           """,
           json);
     }
-    /*
     @Test @Tag("Q7")
     public void toJSONFullExample() {
       var writer = new JSONWriter();
@@ -250,7 +326,1099 @@ public class JSONWriterTest {
           """,
           json);
     }
-	*/
   }  // end of Q7
  
+  @Nested
+  public class Streaming {
+    @Test @Tag("Streaming")
+    public void toJSONWithAWriter() throws IOException {
+      record Address(String street) { }
+      record Person(String name, Address address) { }
+      var writer = new JSONWriter();
+      var person = new Person("Bob", new Address("21 Jump Street"));
+      var stringWriter = new StringWriter();
+      writer.toJSON(person, stringWriter);
+      assertEquals("""
+          {"name": "Bob", "address": {"street": "21 Jump Street"}}\
+          """,
+          stringWriter.toString());
+    }
+
+    @Test @Tag("Streaming")
+    public void toJSONWithAStringBuilder() throws IOException {
+      var writer = new JSONWriter();
+      var builder = new StringBuilder("json: ");
+      writer.toJSON(new Car("Marty"), builder);
+      assertEquals("""
+          json: {"owner": "Marty"}\
+          """,
+          builder.toString());
+    }
+
+    @Test @Tag("Streaming")
+    public void toJSONWithALargeText() throws IOException {
+      record Wrapper(String text) { }
+      var writer = new JSONWriter();
+      var text = "x".repeat(100_000);
+      var stringWriter = new StringWriter();
+      writer.toJSON(new Wrapper(text), stringWriter);
+      assertEquals(writer.toJSON(new Wrapper(text)), stringWriter.toString());
+    }
+
+    @Test @Tag("Streaming")
+    public void toJSONPropagateIOException() {
+      var writer = new JSONWriter();
+      var failingWriter = new Writer() {
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+          throw new IOException("failing");
+        }
+        @Override
+        public void flush() { }
+        @Override
+        public void close() { }
+      };
+      assertThrows(IOException.class, () -> writer.toJSON(new Car("Marty"), failingWriter));
+    }
+
+    @Test @Tag("Streaming")
+    public void toJSONAppendablePrecondition() {
+      var writer = new JSONWriter();
+      assertThrows(NullPointerException.class, () -> writer.toJSON("foo", null));
+    }
+  }  // end of Streaming
+
+  @Nested
+  public class Utf8 {
+    @Test @Tag("Utf8")
+    public void toUTF8() {
+      record Person(@JSONProperty("prénom") String name, int age) { }
+      var writer = new JSONWriter();
+      var person = new Person("Zoë 🐱", 37);
+      var bytes = writer.toUTF8(person);
+      assertEquals("""
+          {"prénom": "Zoë 🐱", "age": 37}\
+          """,
+          new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Test @Tag("Utf8")
+    public void toUTF8WithAnOutputStream() throws IOException {
+      record Wrapper(String text) { }
+      var writer = new JSONWriter();
+      var wrapper = new Wrapper("€".repeat(10_000));
+      var outputStream = new ByteArrayOutputStream();
+      writer.toUTF8(wrapper, outputStream);
+      assertEquals(writer.toJSON(wrapper), outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test @Tag("Utf8")
+    public void toUTF8WithAByteBuffer() {
+      var writer = new JSONWriter();
+      var byteBuffer = ByteBuffer.allocate(64);
+      writer.toUTF8(new Car("Marty"), byteBuffer);
+      byteBuffer.flip();
+      assertEquals("""
+          {"owner": "Marty"}\
+          """,
+          StandardCharsets.UTF_8.decode(byteBuffer).toString());
+    }
+
+    @Test @Tag("Utf8")
+    public void toUTF8WithATooSmallByteBuffer() {
+      var writer = new JSONWriter();
+      var byteBuffer = ByteBuffer.allocate(4);
+      assertThrows(BufferOverflowException.class, () -> writer.toUTF8(new Car("Marty"), byteBuffer));
+    }
+
+    @Test @Tag("Utf8")
+    public void toUTF8Preconditions() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> writer.toUTF8("foo", (OutputStream) null)),
+          () -> assertThrows(NullPointerException.class, () -> writer.toUTF8("foo", (ByteBuffer) null))
+      );
+    }
+  }  // end of Utf8
+
+  public static class FailingBean {
+    public String getName() {
+      throw new IllegalStateException("failing getter");
+    }
+  }
+
+  @Nested
+  public class Getter {
+    @Test @Tag("Getter")
+    public void toJSONPropagateGetterException() {
+      var writer = new JSONWriter();
+      var exception = assertThrows(IllegalStateException.class, () -> writer.toJSON(new FailingBean()));
+      assertEquals("failing getter", exception.getMessage());
+    }
+
+    @Test @Tag("Getter")
+    public void toJSONWithAPrimitiveGetter() {
+      record Point(int x, double y, boolean visible) { }
+      var writer = new JSONWriter();
+      assertEquals("""
+          {"x": 1, "y": 2.0, "visible": true}\
+          """,
+          writer.toJSON(new Point(1, 2.0, true)));
+    }
+  }  // end of Getter
+
+  @Nested
+  public class CompiledMode {
+    @Test @Tag("CompiledMode")
+    public void toJSONWithARecord() {
+      record Person(String name, int age) { }
+      var writer = new JSONWriter();
+      writer.setCompiledMode(true);
+      assertEquals("""
+          {"name": "Ana", "age": 37}\
+          """,
+          writer.toJSON(new Person("Ana", 37)));
+    }
+
+    @Test @Tag("CompiledMode")
+    public void toJSONWithABeanAndJSONProperty() {
+      var writer = new JSONWriter();
+      writer.setCompiledMode(true);
+      assertEquals("""
+          {"first-name": "Bob", "last-name": "Hunky"}\
+          """,
+          writer.toJSON(new Person("Bob", "Hunky")));
+    }
+
+    @Test @Tag("CompiledMode")
+    public void toJSONEmpty() {
+      record Empty() { }
+      var writer = new JSONWriter();
+      writer.setCompiledMode(true);
+      assertEquals("{}", writer.toJSON(new Empty()));
+    }
+
+    @Test @Tag("CompiledMode")
+    public void toJSONRecursive() {
+      record Address(String street) { }
+      record Person(String name, Address address) { }
+      var writer = new JSONWriter();
+      writer.setCompiledMode(true);
+      var person = new Person("Bob", new Address("21 Jump Street"));
+      assertEquals(new JSONWriter().toJSON(person), writer.toJSON(person));
+    }
+
+    @Test @Tag("CompiledMode")
+    public void toJSONPropagateGetterException() {
+      var writer = new JSONWriter();
+      writer.setCompiledMode(true);
+      var exception = assertThrows(IllegalStateException.class, () -> writer.toJSON(new FailingBean()));
+      assertEquals("failing getter", exception.getMessage());
+    }
+  }  // end of CompiledMode
+
+  @Nested
+  public class Encoding {
+    @Test @Tag("Encoding")
+    public void toJSONNumbers() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals("0", writer.toJSON(0)),
+          () -> assertEquals("-42", writer.toJSON(-42)),
+          () -> assertEquals("2147483647", writer.toJSON(Integer.MAX_VALUE)),
+          () -> assertEquals("-2147483648", writer.toJSON(Integer.MIN_VALUE)),
+          () -> assertEquals("9223372036854775807", writer.toJSON(Long.MAX_VALUE)),
+          () -> assertEquals("-9223372036854775808", writer.toJSON(Long.MIN_VALUE)),
+          () -> assertEquals("12", writer.toJSON((short) 12)),
+          () -> assertEquals("-3", writer.toJSON((byte) -3)),
+          () -> assertEquals("1.5", writer.toJSON(1.5f)),
+          () -> assertEquals("12.50", writer.toJSON(new BigDecimal("12.50"))),
+          () -> assertEquals("123456789012345678901234567890", writer.toJSON(new BigInteger("123456789012345678901234567890"))),
+          () -> assertEquals("\"x\"", writer.toJSON('x'))
+      );
+    }
+
+    @Test @Tag("Encoding")
+    public void toJSONDoubles() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals("0.0", writer.toJSON(0.0)),
+          () -> assertEquals("-0.0", writer.toJSON(-0.0)),
+          () -> assertEquals("0.1", writer.toJSON(0.1)),
+          () -> assertEquals("-145.4", writer.toJSON(-145.4)),
+          () -> assertEquals("0.001", writer.toJSON(0.001)),
+          () -> assertEquals("1.0E-4", writer.toJSON(0.0001)),
+          () -> assertEquals("9999999.0", writer.toJSON(9_999_999.0)),
+          () -> assertEquals("1.0E7", writer.toJSON(10_000_000.0)),
+          () -> assertEquals("0.30000000000000004", writer.toJSON(0.1 + 0.2)),
+          () -> assertEquals("3.141592653589793", writer.toJSON(Math.PI))
+      );
+    }
+
+    @Test @Tag("Encoding")
+    public void toJSONDoublesSameAsDoubleToString() {
+      var writer = new JSONWriter();
+      var random = new Random(0);
+      for (var i = 0; i < 100_000; i++) {
+        var value = switch (i % 3) {
+          case 0 -> random.nextDouble() * Math.pow(10, random.nextInt(-4, 8));
+          case 1 -> random.nextInt(-1_000_000, 1_000_000) / Math.pow(10, random.nextInt(0, 7));
+          default -> Double.longBitsToDouble(random.nextLong());
+        };
+        if (!Double.isFinite(value)) {
+          continue;
+        }
+        assertEquals(Double.toString(value), writer.toJSON(value));
+      }
+    }
+
+    @Test @Tag("Encoding")
+    public void toJSONFloatsSameAsFloatToString() {
+      var writer = new JSONWriter();
+      var random = new Random(0);
+      for (var i = 0; i < 100_000; i++) {
+        var value = switch (i % 3) {
+          case 0 -> random.nextFloat() * (float) Math.pow(10, random.nextInt(-4, 8));
+          case 1 -> random.nextInt(-1_000_000, 1_000_000) / (float) Math.pow(10, random.nextInt(0, 7));
+          default -> Float.intBitsToFloat(random.nextInt());
+        };
+        if (!Float.isFinite(value)) {
+          continue;
+        }
+        assertEquals(Float.toString(value), writer.toJSON(value));
+      }
+      assertEquals("[0.1, -2.5, 1.0E-4, 3.4028235E38]", writer.toJSON(new float[] { 0.1f, -2.5f, 1e-4f, Float.MAX_VALUE }));
+    }
+
+    public record Measure(double value) { }
+
+    @Test @Tag("Encoding")
+    public void toJSONNonFiniteNumbers() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertThrows(IllegalArgumentException.class, () -> writer.toJSON(Double.NaN)),
+          () -> assertThrows(IllegalArgumentException.class, () -> writer.toJSON(Double.POSITIVE_INFINITY)),
+          () -> assertThrows(IllegalArgumentException.class, () -> writer.toJSON(Double.NEGATIVE_INFINITY)),
+          () -> assertThrows(IllegalArgumentException.class, () -> writer.toJSON(Float.NaN)),
+          () -> assertThrows(IllegalArgumentException.class, () -> writer.toJSON(Float.NEGATIVE_INFINITY)),
+          () -> assertThrows(IllegalArgumentException.class, () -> writer.toJSON(new double[] { 1.0, Double.NaN })),
+          () -> assertThrows(IllegalArgumentException.class, () -> writer.toJSON(new float[] { Float.POSITIVE_INFINITY })),
+          () -> assertThrows(IllegalArgumentException.class, () -> writer.toUTF8(new Measure(Double.NaN)))
+      );
+    }
+
+    @Test @Tag("Encoding")
+    public void toJSONEscapedStrings() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals("\"\"", writer.toJSON("")),
+          () -> assertEquals("\"a \\\"quote\\\"\"", writer.toJSON("a \"quote\"")),
+          () -> assertEquals("\"back\\\\slash\"", writer.toJSON("back\\slash")),
+          () -> assertEquals("\"\\n\\t\\r\\b\\f\"", writer.toJSON("\n\t\r\b\f")),
+          () -> assertEquals("\"\\u0000\\u001f\"", writer.toJSON("\u0000\u001f")),
+          () -> assertEquals("\"\\\"\"", writer.toJSON('"'))
+      );
+    }
+
+    @Test @Tag("Encoding")
+    public void toJSONEscapedKeysAndValues() {
+      record Quote(@JSONProperty("say \"hello\"") String text) { }
+      var writer = new JSONWriter();
+      var expected = """
+          {"say \\"hello\\"": "line1\\nline2"}\
+          """;
+      assertAll(
+          () -> assertEquals(expected, writer.toJSON(new Quote("line1\nline2"))),
+          () -> assertEquals(expected, new String(writer.toUTF8(new Quote("line1\nline2")), StandardCharsets.UTF_8))
+      );
+    }
+  }  // end of Encoding
+
+  @Nested
+  public class ArraysAndCollections {
+    @Test @Tag("ArraysAndCollections")
+    public void toJSONPrimitiveArrays() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals("[]", writer.toJSON(new int[0])),
+          () -> assertEquals("[1, -2, 3]", writer.toJSON(new int[] { 1, -2, 3 })),
+          () -> assertEquals("[10000000000, 2]", writer.toJSON(new long[] { 10_000_000_000L, 2 })),
+          () -> assertEquals("[1.5, 2.0]", writer.toJSON(new double[] { 1.5, 2 })),
+          () -> assertEquals("[1.5, 2.0]", writer.toJSON(new float[] { 1.5f, 2 })),
+          () -> assertEquals("[1, 2]", writer.toJSON(new short[] { 1, 2 })),
+          () -> assertEquals("[1, 2]", writer.toJSON(new byte[] { 1, 2 })),
+          () -> assertEquals("[true, false]", writer.toJSON(new boolean[] { true, false })),
+          () -> assertEquals("\"foo\"", writer.toJSON(new char[] { 'f', 'o', 'o' }))
+      );
+    }
+
+    @Test @Tag("ArraysAndCollections")
+    public void toJSONObjectArray() {
+      var writer = new JSONWriter();
+      assertEquals("""
+          ["foo", null, 3, [1, 2]]\
+          """,
+          writer.toJSON(new Object[] { "foo", null, 3, new int[] { 1, 2 } }));
+    }
+
+    @Test @Tag("ArraysAndCollections")
+    public void toJSONCollections() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals("[]", writer.toJSON(List.of())),
+          () -> assertEquals("[1, 2, 3]", writer.toJSON(List.of(1, 2, 3))),
+          () -> assertEquals("[\"a\", \"b\"]", writer.toJSON(new LinkedHashSet<>(List.of("a", "b")))),
+          () -> assertEquals("[1, 2]", writer.toJSON(new ArrayDeque<>(List.of(1, 2))))
+      );
+    }
+
+    @Test @Tag("ArraysAndCollections")
+    public void toJSONMap() {
+      var writer = new JSONWriter();
+      var map = new LinkedHashMap<Object, Object>();
+      map.put("name", "Bob");
+      map.put(42, List.of(true));
+      assertAll(
+          () -> assertEquals("{}", writer.toJSON(Map.of())),
+          () -> assertEquals("""
+              {"name": "Bob", "42": [true]}\
+              """, writer.toJSON(map))
+      );
+    }
+
+    @Test @Tag("ArraysAndCollections")
+    public void toJSONRecordWithArraysAndCollections() {
+      record Measure(String name, double[] values, List<String> tags) { }
+      var writer = new JSONWriter();
+      assertEquals("""
+          {"name": "temperature", "values": [20.5, 21.0], "tags": ["kitchen"]}\
+          """,
+          writer.toJSON(new Measure("temperature", new double[] { 20.5, 21 }, List.of("kitchen"))));
+    }
+  }  // end of ArraysAndCollections
+
+  @Nested
+  public class Parallel {
+    @Test @Tag("Parallel")
+    public void toJSONParallelList() {
+      record Point(int x, int y) { }
+      var points = IntStream.range(0, 100_000).mapToObj(i -> new Point(i, -i)).toList();
+      var writer = new JSONWriter();
+      var expected = writer.toJSON(points);
+      writer.setParallelThreshold(1_000);
+      assertEquals(expected, writer.toJSON(points));
+    }
+
+    @Test @Tag("Parallel")
+    public void toUTF8ParallelArray() {
+      var array = IntStream.range(0, 100_000).mapToObj(i -> "é" + i).toArray(String[]::new);
+      var writer = new JSONWriter();
+      var expected = writer.toUTF8(array);
+      writer.setParallelThreshold(1_000);
+      assertArrayEquals(expected, writer.toUTF8(array));
+    }
+
+    @Test @Tag("Parallel")
+    public void toJSONParallelSmallList() {
+      var writer = new JSONWriter();
+      writer.setParallelThreshold(1);
+      assertAll(
+          () -> assertEquals("[]", writer.toJSON(List.of())),
+          () -> assertEquals("[1]", writer.toJSON(List.of(1))),
+          () -> assertEquals("[1, 2, 3]", writer.toJSON(new Integer[] { 1, 2, 3 }))
+      );
+    }
+
+    @Test @Tag("Parallel")
+    public void toJSONParallelWithAnAppendable() throws IOException {
+      var list = IntStream.range(0, 10_000).boxed().toList();
+      var writer = new JSONWriter();
+      var expected = writer.toJSON(list);
+      writer.setParallelThreshold(100);
+      var stringWriter = new StringWriter();
+      writer.toJSON(list, stringWriter);
+      assertEquals(expected, stringWriter.toString());
+    }
+
+    @Test @Tag("Parallel")
+    public void setParallelThresholdPrecondition() {
+      var writer = new JSONWriter();
+      assertThrows(IllegalArgumentException.class, () -> writer.setParallelThreshold(0));
+    }
+  }  // end of Parallel
+
+  @Nested
+  public class Ndjson {
+    @Test @Tag("Ndjson")
+    public void writeNdjsonToAnOutputStream() throws IOException {
+      record Person(String name, int age) { }
+      var writer = new JSONWriter();
+      var outputStream = new ByteArrayOutputStream();
+      writer.writeNdjson(Stream.of(new Person("Ana", 37), new Person("Bob", 23)), outputStream);
+      assertEquals("""
+          {"name": "Ana", "age": 37}
+          {"name": "Bob", "age": 23}
+          """,
+          outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test @Tag("Ndjson")
+    public void writeNdjsonToAFileChannel() throws IOException {
+      var writer = new JSONWriter();
+      var path = Files.createTempFile("ndjson", ".json");
+      try {
+        try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+          writer.writeNdjson(IntStream.range(0, 100_000).mapToObj(i -> List.of(i, "é")), channel);
+        }
+        var lines = Files.readAllLines(path);
+        assertEquals(100_000, lines.size());
+        assertEquals("[99999, \"é\"]", lines.get(99_999));
+      } finally {
+        Files.delete(path);
+      }
+    }
+
+    @Test @Tag("Ndjson")
+    public void writeNdjsonEmpty() throws IOException {
+      var writer = new JSONWriter();
+      var outputStream = new ByteArrayOutputStream();
+      writer.writeNdjson(Stream.empty(), outputStream);
+      assertEquals(0, outputStream.size());
+    }
+
+    @Test @Tag("Ndjson")
+    public void writeNdjsonPreconditions() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> writer.writeNdjson(null, new ByteArrayOutputStream())),
+          () -> assertThrows(NullPointerException.class, () -> writer.writeNdjson(Stream.empty(), (OutputStream) null)),
+          () -> assertThrows(NullPointerException.class, () -> writer.writeNdjson(Stream.empty(), (WritableByteChannel) null))
+      );
+    }
+  }  // end of Ndjson
+
+  @Nested
+  public class BufferPool {
+    @Test @Tag("BufferPool")
+    public void toJSONReuseBuffers() {
+      var writer = new JSONWriter();
+      writer.toJSON(new Car("Marty"));
+      var before = JSONWriter.bufferPoolStatistics();
+      for (var i = 0; i < 10; i++) {
+        assertEquals("""
+            {"owner": "Marty"}\
+            """, writer.toJSON(new Car("Marty")));
+      }
+      var after = JSONWriter.bufferPoolStatistics();
+      assertTrue(after.hits() > before.hits());
+    }
+
+    @Test @Tag("BufferPool")
+    public void toJSONAfterAHugePayload() {
+      var writer = new JSONWriter();
+      var huge = "x".repeat(1_000_000);
+      assertEquals(1_000_002, writer.toJSON(huge).length());
+      assertEquals(1_000_002, writer.toUTF8(huge).length);
+      assertEquals("\"small\"", writer.toJSON("small"));
+      assertEquals("\"small\"", new String(writer.toUTF8("small"), StandardCharsets.UTF_8));
+    }
+
+    @Test @Tag("BufferPool")
+    public void releaseOnlyBuffersWithinTheBounds() {
+      var pool = new com.github.forax.framework.mapper.BufferPool<byte[]>(byte[]::new, buffer -> buffer.length, 16, 64);
+      var small = new byte[8];
+      var big = new byte[128];
+      var grown = new byte[32];
+      pool.release(small);
+      pool.release(big);
+      assertEquals(16, pool.acquire().length);
+      pool.release(grown);
+      assertAll(
+          () -> assertSame(grown, pool.acquire()),
+          () -> assertEquals(1, pool.hits()),
+          () -> assertEquals(1, pool.misses())
+      );
+    }
+
+    @Test @Tag("BufferPool")
+    public void reserveKeepsTheContent() {
+      var output = new JSONOutput.Utf8Output();
+      try {
+        output.append("[1, ");
+        output.reserve(100_000);
+        output.append("2]");
+        assertEquals("[1, 2]", output.toString());
+      } finally {
+        output.release();
+      }
+    }
+
+    @Test @Tag("BufferPool")
+    public void bufferPoolStatistics() {
+      var statistics = JSONWriter.bufferPoolStatistics();
+      assertAll(
+          () -> assertTrue(statistics.hits() >= 0),
+          () -> assertTrue(statistics.misses() >= 0)
+      );
+    }
+  }  // end of BufferPool
+
+  public enum Unit { KG, M }
+  public record Quantity(double value, Unit unit) { }
+  public record Product(String name, Quantity weight) { }
+  public record Basket(List<Product> products) { }
+
+  @Nested
+  public class RecordCache {
+    @Test @Tag("RecordCache")
+    public void toJSONMemoizedRecord() {
+      var writer = new JSONWriter();
+      writer.setRecordCacheCapacity(16);
+      var product = new Product("apple", new Quantity(0.2, Unit.KG));
+      var expected = new JSONWriter().toJSON(product);
+      assertEquals(expected, writer.toJSON(product));
+      assertEquals(expected, writer.toJSON(product));
+      assertEquals(expected, new String(writer.toUTF8(product), StandardCharsets.UTF_8));
+      var statistics = writer.recordCacheStatistics();
+      assertAll(
+          () -> assertEquals(2, statistics.hits()),
+          () -> assertEquals(2, statistics.misses()),  // product and weight
+          () -> assertEquals(0.5, statistics.hitRate())
+      );
+    }
+
+    @Test @Tag("RecordCache")
+    public void toJSONMemoizationIsByIdentity() {
+      var writer = new JSONWriter();
+      writer.setRecordCacheCapacity(16);
+      writer.toJSON(new Quantity(1, Unit.M));
+      writer.toJSON(new Quantity(1, Unit.M));
+      assertEquals(0, writer.recordCacheStatistics().hits());
+    }
+
+    @Test @Tag("RecordCache")
+    public void toJSONMutableRecordNotMemoized() {
+      var writer = new JSONWriter();
+      writer.setRecordCacheCapacity(16);
+      var products = new ArrayList<Product>();
+      var basket = new Basket(products);
+      assertEquals("{\"products\": []}", writer.toJSON(basket));
+      products.add(new Product("pear", null));
+      assertEquals("{\"products\": [{\"name\": \"pear\", \"weight\": null}]}", writer.toJSON(basket));
+    }
+
+    @Test @Tag("RecordCache")
+    public void toJSONWithASmallCache() {
+      var writer = new JSONWriter();
+      writer.setRecordCacheCapacity(1);
+      var quantities = IntStream.range(0, 100).mapToObj(i -> new Quantity(i, Unit.M)).toList();
+      for (var i = 0; i < 2; i++) {
+        assertEquals(new JSONWriter().toJSON(quantities), writer.toJSON(quantities));
+      }
+    }
+
+    @Test @Tag("RecordCache")
+    public void recordCacheStatisticsNotEnabled() {
+      var writer = new JSONWriter();
+      assertThrows(IllegalStateException.class, writer::recordCacheStatistics);
+    }
+
+    @Test @Tag("RecordCache")
+    public void setRecordCacheCapacityPrecondition() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertThrows(IllegalArgumentException.class, () -> writer.setRecordCacheCapacity(-1)),
+          () -> assertThrows(IllegalArgumentException.class, () -> writer.setRecordCacheCapacity((1 << 30) + 1)),
+          () -> assertThrows(IllegalArgumentException.class, () -> writer.setRecordCacheCapacity(Integer.MAX_VALUE))
+      );
+    }
+
+    @Test @Tag("RecordCache")
+    public void configureEmptiesTheCache() {
+      var writer = new JSONWriter();
+      writer.setRecordCacheCapacity(16);
+      var product = new Product("apple", new Quantity(0.2, Unit.KG));
+      writer.toJSON(product);
+      writer.configure(Quantity.class, quantity -> "\"" + quantity.value() + " " + quantity.unit() + "\"");
+      assertAll(
+          () -> assertEquals("{\"name\": \"apple\", \"weight\": \"0.2 KG\"}", writer.toJSON(product)),
+          () -> assertEquals(0, writer.recordCacheStatistics().hits())
+      );
+    }
+  }  // end of RecordCache
+
+  @JSONSerializable
+  public record Book(String title, @JSONProperty("page-count") int pageCount, List<String> authors) { }
+
+  @JSONSerializable
+  public static class Library {
+    private final String name;
+    private final boolean open;
+
+    public Library(String name, boolean open) {
+      this.name = name;
+      this.open = open;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public boolean isOpen() {
+      return open;
+    }
+
+    @JSONProperty("book-count")
+    public int getBookCount() {
+      return 3;
+    }
+  }
+
+  @JSONSerializable
+  public static class Shelf {
+    public String getLabel() {
+      return "sci-fi";
+    }
+
+    public int getSize() {
+      return 12;
+    }
+  }
+
+  // hides the property size from the Introspector, the annotation processor still sees the getter
+  public static class ShelfBeanInfo extends SimpleBeanInfo {
+    @Override
+    public PropertyDescriptor[] getPropertyDescriptors() {
+      try {
+        return new PropertyDescriptor[] { new PropertyDescriptor("label", Shelf.class, "getLabel", null) };
+      } catch (IntrospectionException e) {
+        throw new AssertionError(e);
+      }
+    }
+  }
+
+  @Nested
+  public class GeneratedSerializer {
+    @Test @Tag("GeneratedSerializer")
+    public void toJSONUsesTheGeneratedSerializer() {
+      assertEquals(List.of("label"),
+          Arrays.stream(Utils.beanInfo(Shelf.class).getPropertyDescriptors()).map(PropertyDescriptor::getName).toList());
+      var writer = new JSONWriter();
+      assertEquals("""
+          {"label": "sci-fi", "size": 12}          """,
+          writer.toJSON(new Shelf()));
+    }
+
+    @Test @Tag("GeneratedSerializer")
+    public void generatedSerializerExists() throws ClassNotFoundException {
+      assertAll(
+          () -> assertTrue(JSONSerializer.class.isAssignableFrom(Class.forName(Book.class.getName() + JSONSerializer.SUFFIX))),
+          () -> assertTrue(JSONSerializer.class.isAssignableFrom(Class.forName(Library.class.getName() + JSONSerializer.SUFFIX))),
+          () -> assertTrue(JSONSerializer.class.isAssignableFrom(Class.forName(Person.class.getName() + JSONSerializer.SUFFIX)))
+      );
+    }
+
+    @Test @Tag("GeneratedSerializer")
+    public void toJSONWithAGeneratedRecordSerializer() {
+      var writer = new JSONWriter();
+      assertEquals("""
+          {"title": "Dune", "page-count": 412, "authors": ["Frank Herbert"]}\
+          """,
+          writer.toJSON(new Book("Dune", 412, List.of("Frank Herbert"))));
+    }
+
+    @Test @Tag("GeneratedSerializer")
+    public void toJSONWithAGeneratedBeanSerializer() {
+      var writer = new JSONWriter();
+      assertEquals("""
+          {"book-count": 3, "name": "BnF", "open": true}\
+          """,
+          writer.toJSON(new Library("BnF", true)));
+    }
+
+    @Test @Tag("GeneratedSerializer")
+    public void toJSONWithAGeneratedSerializerInCompiledMode() {
+      var writer = new JSONWriter();
+      writer.setCompiledMode(true);
+      assertEquals("""
+          {"title": "Dune", "page-count": 412, "authors": []}\
+          """,
+          writer.toJSON(new Book("Dune", 412, List.of())));
+    }
+  }  // end of GeneratedSerializer
+
+  public record Customer(String name, @JSONView("detail") String email, @JSONView({"detail", "admin"}) int credit) { }
+  private record Order(@JSONView("detail") long id, Customer customer, @JSONView("admin") String note) { }
+
+  @Nested
+  public class View {
+    @Test @Tag("View")
+    public void toJSONWithoutView() {
+      var writer = new JSONWriter();
+      assertEquals("""
+          {"name": "Ana", "email": "ana@mail.org", "credit": 100}\
+          """,
+          writer.toJSON(new Customer("Ana", "ana@mail.org", 100)));
+    }
+
+    @Test @Tag("View")
+    public void toJSONWithAView() {
+      var writer = new JSONWriter();
+      writer.setView("summary");
+      assertEquals("""
+          {"name": "Ana"}\
+          """,
+          writer.toJSON(new Customer("Ana", "ana@mail.org", 100)));
+    }
+
+    @Test @Tag("View")
+    public void toJSONWithSeveralViews() {
+      var detail = new JSONWriter();
+      detail.setView("detail");
+      var admin = new JSONWriter();
+      admin.setView("admin");
+      var customer = new Customer("Ana", "ana@mail.org", 100);
+      assertAll(
+          () -> assertEquals("""
+              {"name": "Ana", "email": "ana@mail.org", "credit": 100}\
+              """, detail.toJSON(customer)),
+          () -> assertEquals("""
+              {"name": "Ana", "credit": 100}\
+              """, admin.toJSON(customer))
+      );
+    }
+
+    @Test @Tag("View")
+    public void toJSONWithAViewAppliesToNestedObjects() {
+      var writer = new JSONWriter();
+      writer.setView("admin");
+      assertEquals("""
+          {"customer": {"name": "Ana", "credit": 100}, "note": "urgent"}\
+          """,
+          writer.toJSON(new Order(42, new Customer("Ana", "ana@mail.org", 100), "urgent")));
+    }
+
+    @Test @Tag("View")
+    public void toJSONWithAViewInCompiledMode() {
+      var writer = new JSONWriter();
+      writer.setCompiledMode(true);
+      writer.setView("detail");
+      assertEquals("""
+          {"id": 42, "customer": {"name": "Ana", "email": "ana@mail.org", "credit": 100}}\
+          """,
+          writer.toJSON(new Order(42, new Customer("Ana", "ana@mail.org", 100), "urgent")));
+    }
+
+    @Test @Tag("View")
+    public void setViewCanBeChanged() {
+      var writer = new JSONWriter();
+      writer.setRecordCacheCapacity(16);
+      var customer = new Customer("Ana", "ana@mail.org", 100);
+      writer.setView("summary");
+      var summary = writer.toJSON(customer);
+      writer.setView(null);
+      assertAll(
+          () -> assertEquals("""
+              {"name": "Ana"}\
+              """, summary),
+          () -> assertEquals("""
+              {"name": "Ana", "email": "ana@mail.org", "credit": 100}\
+              """, writer.toJSON(customer))
+      );
+    }
+  }  // end of View
+
+  @Nested
+  public class SizeEstimation {
+    @Test @Tag("SizeEstimation")
+    public void estimatedSizeUnknown() {
+      record Unused(int value) { }
+      var writer = new JSONWriter();
+      assertEquals(0, writer.estimatedSize(Unused.class));
+    }
+
+    @Test @Tag("SizeEstimation")
+    public void estimatedSizeAfterFirstWrite() {
+      record Point(int x, int y) { }
+      var writer = new JSONWriter();
+      var json = writer.toJSON(new Point(1, 2));
+      assertEquals(json.length(), writer.estimatedSize(Point.class));
+    }
+
+    @Test @Tag("SizeEstimation")
+    public void estimatedSizeConverges() {
+      record Text(String text) { }
+      var writer = new JSONWriter();
+      writer.toUTF8(new Text("a"));
+      var large = writer.toUTF8(new Text("a".repeat(100_000)));
+      for (var i = 0; i < 100; i++) {
+        assertEquals(large.length, writer.toUTF8(new Text("a".repeat(100_000))).length);
+      }
+      var estimate = writer.estimatedSize(Text.class);
+      assertTrue(Math.abs(estimate - large.length) < large.length / 100, "estimate " + estimate);
+    }
+
+    @Test @Tag("SizeEstimation")
+    public void estimatedSizeIsPerView() {
+      record Detail(@JSONView("detail") String text) { }
+      var writer = new JSONWriter();
+      writer.setView("detail");
+      writer.toJSON(new Detail("a".repeat(1_000)));
+      writer.setView("summary");
+      writer.toJSON(new Detail("a".repeat(1_000)));
+      assertEquals("{}".length(), writer.estimatedSize(Detail.class));
+    }
+
+    @Test @Tag("SizeEstimation")
+    public void estimatedSizePrecondition() {
+      assertThrows(NullPointerException.class, () -> new JSONWriter().estimatedSize(null));
+    }
+  }  // end of SizeEstimation
+
+  public record Line(String text, int number) { }
+
+  /**
+   * An asynchronous channel that writes at most 1000 bytes per write on another thread
+   * and checks that there is only one pending write.
+   * After maxWrites writes, a write throws synchronously as if the channel group was shutdown.
+   */
+  private static final class SlowChannel implements AsynchronousByteChannel {
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private boolean pending;
+    private int writes;
+    private final IOException failure;
+    private final int maxWrites;
+
+    private SlowChannel(IOException failure, int maxWrites) {
+      this.failure = failure;
+      this.maxWrites = maxWrites;
+    }
+
+    private SlowChannel(IOException failure) {
+      this(failure, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public <A> void write(ByteBuffer src, A attachment, CompletionHandler<Integer, ? super A> handler) {
+      synchronized (this) {
+        if (pending) {
+          throw new WritePendingException();
+        }
+        if (writes++ == maxWrites) {
+          throw new ShutdownChannelGroupException();
+        }
+        pending = true;
+      }
+      CompletableFuture.runAsync(() -> {
+        var length = Math.min(1_000, src.remaining());
+        var bytes = new byte[length];
+        src.get(bytes);
+        synchronized (this) {
+          output.writeBytes(bytes);
+          pending = false;
+        }
+        if (failure != null) {
+          handler.failed(failure, attachment);
+          return;
+        }
+        handler.completed(length, attachment);
+      });
+    }
+
+    synchronized byte[] toByteArray() {
+      return output.toByteArray();
+    }
+
+    @Override
+    public Future<Integer> write(ByteBuffer src) {
+      throw new UnsupportedOperationException();
+    }
+    @Override
+    public <A> void read(ByteBuffer dst, A attachment, CompletionHandler<Integer, ? super A> handler) {
+      throw new UnsupportedOperationException();
+    }
+    @Override
+    public Future<Integer> read(ByteBuffer dst) {
+      throw new UnsupportedOperationException();
+    }
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+    @Override
+    public void close() {}
+  }
+
+  // a channel that holds the first write until release() is called, the next writes complete immediately
+  private static final class HoldingChannel implements AsynchronousByteChannel {
+    private final CountDownLatch firstWrite = new CountDownLatch(1);
+    private final AtomicInteger writes = new AtomicInteger();
+    private Runnable pending;
+    private boolean released;
+
+    @Override
+    public <A> void write(ByteBuffer src, A attachment, CompletionHandler<Integer, ? super A> handler) {
+      writes.incrementAndGet();
+      Runnable completion = () -> {
+        var length = src.remaining();
+        src.position(src.limit());
+        handler.completed(length, attachment);
+      };
+      synchronized (this) {
+        if (!released) {
+          pending = completion;
+          firstWrite.countDown();
+          return;
+        }
+      }
+      completion.run();
+    }
+
+    void awaitFirstWrite() throws InterruptedException {
+      assertTrue(firstWrite.await(10, TimeUnit.SECONDS));
+    }
+
+    void release() {
+      Runnable pending;
+      synchronized (this) {
+        released = true;
+        pending = this.pending;
+      }
+      pending.run();
+    }
+
+    int writes() {
+      return writes.get();
+    }
+
+    @Override
+    public Future<Integer> write(ByteBuffer src) {
+      throw new UnsupportedOperationException();
+    }
+    @Override
+    public <A> void read(ByteBuffer dst, A attachment, CompletionHandler<Integer, ? super A> handler) {
+      throw new UnsupportedOperationException();
+    }
+    @Override
+    public Future<Integer> read(ByteBuffer dst) {
+      throw new UnsupportedOperationException();
+    }
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+    @Override
+    public void close() {}
+  }
+
+  @Nested
+  public class Async {
+    @Test @Tag("Async")
+    public void toUTF8AsyncByteChannel() throws ExecutionException, InterruptedException, TimeoutException {
+      var writer = new JSONWriter();
+      var values = IntStream.range(0, 50_000).mapToObj(i -> new Line("é" + i, i)).toList();
+      var channel = new SlowChannel(null);
+      var size = writer.toUTF8Async(values, channel).get(10, TimeUnit.SECONDS);
+      var expected = writer.toUTF8(values);
+      assertAll(
+          () -> assertEquals(expected.length, size),
+          () -> assertArrayEquals(expected, channel.toByteArray())
+      );
+    }
+
+    @Test @Tag("Async")
+    public void toUTF8AsyncFileChannel() throws IOException, ExecutionException, InterruptedException, TimeoutException {
+      var writer = new JSONWriter();
+      var values = IntStream.range(0, 50_000).mapToObj(i -> new Line("line" + i, i)).toList();
+      var path = Files.createTempFile("async", ".json");
+      try {
+        try (var channel = AsynchronousFileChannel.open(path, StandardOpenOption.WRITE)) {
+          channel.write(ByteBuffer.wrap("--".getBytes(StandardCharsets.UTF_8)), 0).get();
+          writer.toUTF8Async(values, channel, 2).get(10, TimeUnit.SECONDS);
+        }
+        assertEquals("--" + writer.toJSON(values), Files.readString(path));
+      } finally {
+        Files.delete(path);
+      }
+    }
+
+    @Test @Tag("Async")
+    public void toUTF8AsyncChannelFailure() {
+      var writer = new JSONWriter();
+      var values = IntStream.range(0, 50_000).boxed().toList();
+      var future = writer.toUTF8Async(values, new SlowChannel(new IOException("connection reset")));
+      var exception = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+      assertTrue(exception.getCause() instanceof IOException);
+    }
+
+    @Test @Tag("Async")
+    public void toUTF8AsyncChannelRejectsAPartialWrite() {
+      var writer = new JSONWriter();
+      var values = IntStream.range(0, 50_000).boxed().toList();
+      // the first write is partial, so the second write is started by the completion handler
+      var future = writer.toUTF8Async(values, new SlowChannel(null, 1));
+      var exception = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+      assertTrue(exception.getCause().getCause() instanceof ShutdownChannelGroupException);
+    }
+
+    @Test @Tag("Async")
+    public void toUTF8AsyncChannelRejectsTheFirstWrite() {
+      var writer = new JSONWriter();
+      var values = IntStream.range(0, 50_000).boxed().toList();
+      var future = writer.toUTF8Async(values, new SlowChannel(null, 0));
+      var exception = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+      assertTrue(exception.getCause().getCause() instanceof ShutdownChannelGroupException);
+    }
+
+    @Test @Tag("Async")
+    public void toUTF8AsyncSerializationFailure() {
+      var writer = new JSONWriter();
+      var future = writer.toUTF8Async(new FailingBean(), new SlowChannel(null));
+      var exception = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+      assertTrue(exception.getCause() instanceof IllegalStateException);
+    }
+
+    @Test @Tag("Async")
+    public void toUTF8AsyncSerializationFailureWaitsForThePendingWrite() throws InterruptedException {
+      var writer = new JSONWriter();
+      var channel = new HoldingChannel();
+      // the first buffer is written before the getter fails
+      var future = writer.toUTF8Async(List.of("a".repeat(100_000), new FailingBean()), channel);
+      channel.awaitFirstWrite();
+      assertThrows(TimeoutException.class, () -> future.get(100, TimeUnit.MILLISECONDS));
+      channel.release();
+      var exception = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+      assertTrue(exception.getCause() instanceof IllegalStateException);
+    }
+
+    @Test @Tag("Async")
+    public void toUTF8AsyncCancellationStopsTheSerialization() throws InterruptedException {
+      var writer = new JSONWriter();
+      var values = IntStream.range(0, 50_000).mapToObj(i -> new Line("line" + i, i)).toList();
+      var channel = new HoldingChannel();
+      var future = writer.toUTF8Async(values, channel);
+      channel.awaitFirstWrite();
+      assertTrue(future.cancel(true));
+      channel.release();
+      Thread.sleep(100);
+      assertEquals(1, channel.writes());
+    }
+
+    @Test @Tag("Async")
+    public void toUTF8AsyncPreconditions() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> writer.toUTF8Async("foo", (AsynchronousByteChannel) null)),
+          () -> assertThrows(NullPointerException.class, () -> writer.toUTF8Async("foo", null, 0)),
+          () -> assertThrows(IllegalArgumentException.class, () -> {
+            var path = Files.createTempFile("async", ".json");
+            try (var channel = AsynchronousFileChannel.open(path, StandardOpenOption.WRITE)) {
+              writer.toUTF8Async("foo", channel, -1);
+            } finally {
+              Files.delete(path);
+            }
+          })
+      );
+    }
+  }  // end of Async
 }
@@ -0,0 +1,206 @@
+package com.github.forax.framework.mapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.stream.Collectors.joining;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class StructuralIndexerTest {
+  private static int[] positions(String text, StructuralIndexer.Classifier classifier) {
+    var bytes = text.getBytes(StandardCharsets.UTF_8);
+    var indexer = new StructuralIndexer(bytes, 0, bytes.length, classifier);
+    var positions = new int[StructuralIndexer.BLOCK_SIZE];
+    var result = new ArrayList<Integer>();
+    int count;
+    while ((count = indexer.index(positions)) != 0) {
+      Arrays.stream(positions, 0, count).forEach(result::add);
+    }
+    return result.stream().mapToInt(i -> i).toArray();
+  }
+
+  private static List<String> events(JSONLexer lexer) {
+    var reader = new JSONStreamReader(lexer);
+    var events = new ArrayList<String>();
+    JSONStreamReader.Kind kind;
+    while ((kind = reader.next()) != JSONStreamReader.Kind.END_DOCUMENT) {
+      events.add(reader.currentKey() + ":" + switch (kind) {
+        case STRING, INTEGER, DOUBLE, TRUE, FALSE, NULL -> reader.value();
+        default -> kind;
+      });
+    }
+    return events;
+  }
+
+  private static List<String> scalarEvents(byte[] bytes) {
+    return events(new JSONLexer.Utf8Lexer(bytes, 0, bytes.length));
+  }
+
+  private static List<String> indexedEvents(byte[] bytes, StructuralIndexer.Classifier classifier) {
+    return events(new JSONLexer.IndexedLexer(bytes, 0, bytes.length, classifier));
+  }
+
+  @Test
+  public void positions() {
+    var text = """
+        {"a": [1, true], "b\\"}": "é"}""";
+    assertArrayEquals(
+        new int[] { 0, 1, 3, 4, 6, 7, 8, 10, 14, 15, 17, 22, 23, 25, 28, 29 },
+        positions(text, StructuralIndexer.SCALAR));
+  }
+
+  @Test
+  public void positionsVector() {
+    assumeTrue(StructuralIndexer.VECTORIZED);
+    var text = """
+        {"a": [1, true], "b\\"}": "é"}""";
+    assertArrayEquals(
+        positions(text, StructuralIndexer.SCALAR),
+        positions(text, StructuralIndexer.vectorClassifier()));
+  }
+
+  @Test
+  public void utf8LexerDependsOnTheVectorModule() {
+    var bytes = "[1, 2]".getBytes(StandardCharsets.UTF_8);
+    var lexer = JSONLexer.utf8(bytes, 0, bytes.length);
+    assertEquals(StructuralIndexer.VECTORIZED ? JSONLexer.IndexedLexer.class : JSONLexer.Utf8Lexer.class, lexer.getClass());
+  }
+
+  @Test
+  public void escapesAcrossBlocks() {
+    for (var padding = 50; padding < 70; padding++) {
+      for (var backslashes = 0; backslashes < 5; backslashes++) {
+        var key = " ".repeat(padding) + "\\\\".repeat(backslashes) + "\\\"";
+        var text = "{\"" + key + "\": [\"" + "\\\\".repeat(backslashes) + "\", 12]}";
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        assertEquals(scalarEvents(bytes), indexedEvents(bytes, StructuralIndexer.SCALAR), text);
+      }
+    }
+  }
+
+  @Test
+  public void tokensAcrossBlocks() {
+    for (var padding = 50; padding < 70; padding++) {
+      var text = "[" + " ".repeat(padding) + "true, 123456789, \"" + "é".repeat(padding) + "\", null, -1.5e3]";
+      var bytes = text.getBytes(StandardCharsets.UTF_8);
+      assertEquals(scalarEvents(bytes), indexedEvents(bytes, StructuralIndexer.SCALAR), text);
+    }
+  }
+
+  private static final List<String> STRING_PARTS = List.of("\\\\", "\\\"", "\\n", "\\u00e9", "ab", "{[,:]}", "é");
+
+  private static String randomDocument(Random random, int depth) {
+    if (depth == 0) {
+      return switch (random.nextInt(6)) {
+        case 0 -> "null";
+        case 1 -> String.valueOf(random.nextBoolean());
+        case 2 -> String.valueOf(random.nextInt());
+        case 3 -> String.valueOf(random.nextDouble());
+        case 4 -> random.ints(random.nextInt(10), 0, STRING_PARTS.size())
+            .mapToObj(STRING_PARTS::get)
+            .collect(joining("", "\"", "\""));
+        default -> "\"" + "x".repeat(random.nextInt(100)) + "é\"";
+      };
+    }
+    var size = random.nextInt(5);
+    var elements = new ArrayList<String>();
+    var isObject = random.nextBoolean();
+    for (var i = 0; i < size; i++) {
+      var element = randomDocument(random, random.nextInt(depth));
+      elements.add(isObject ? "\"key" + i + "\":" + " ".repeat(random.nextInt(3)) + element : element);
+    }
+    return isObject ? "{" + String.join(",", elements) + "}" : "[" + String.join(", ", elements) + "]";
+  }
+
+  @Test
+  public void randomDocuments() {
+    var random = new Random(0);
+    for (var i = 0; i < 1_000; i++) {
+      var text = "[" + randomDocument(random, 5) + "]";
+      var bytes = text.getBytes(StandardCharsets.UTF_8);
+      var expected = scalarEvents(bytes);
+      assertEquals(expected, indexedEvents(bytes, StructuralIndexer.SCALAR), text);
+      if (StructuralIndexer.VECTORIZED) {
+        assertEquals(expected, indexedEvents(bytes, StructuralIndexer.vectorClassifier()), text);
+      }
+    }
+  }
+
+  @Test
+  public void bigDocument() {
+    var builder = new StringBuilder("[");
+    for (var i = 0; i < 100_000; i++) {
+      builder.append(i == 0 ? "" : ", ").append("{\"id\": ").append(i).append(", \"name\": \"Bob\", \"tags\": [true, null]}");
+    }
+    var bytes = builder.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    var events = indexedEvents(bytes, StructuralIndexer.SCALAR);
+    assertAll(
+        () -> assertEquals(100_000 * 8 + 2, events.size()),
+        () -> assertEquals("id:99999", events.get(events.size() - 8)),
+        () -> assertEquals(scalarEvents(bytes), events)
+    );
+  }
+
+  @Test
+  public void offsetAndLimit() {
+    var bytes = "xx[1, \"a\"]yy".getBytes(StandardCharsets.UTF_8);
+    assertEquals(List.of("null:START_ARRAY", "null:1", "null:a", "null:END_ARRAY"),
+        events(new JSONLexer.IndexedLexer(bytes, 2, bytes.length - 2, StructuralIndexer.SCALAR)));
+  }
+
+  @Test
+  public void errors() {
+    assertAll(
+        () -> assertEquals("unterminated string at 7",
+            assertThrows(IllegalStateException.class,
+                () -> indexedEvents("[1, 2, \"foo]".getBytes(StandardCharsets.UTF_8), StructuralIndexer.SCALAR)).getMessage()),
+        () -> assertEquals("unexpected character 'x' at 5",
+            assertThrows(IllegalStateException.class,
+                () -> indexedEvents("[nullx]".getBytes(StandardCharsets.UTF_8), StructuralIndexer.SCALAR)).getMessage()),
+        () -> assertEquals("unexpected character 'a' at 5",
+            assertThrows(IllegalStateException.class,
+                () -> indexedEvents("[1, 2a]".getBytes(StandardCharsets.UTF_8), StructuralIndexer.SCALAR)).getMessage()),
+        () -> assertEquals("no token recognized",
+            assertThrows(IllegalStateException.class,
+                () -> indexedEvents("[1, 2".getBytes(StandardCharsets.UTF_8), StructuralIndexer.SCALAR)).getMessage()),
+        () -> assertEquals("invalid number 01 at 4",
+            assertThrows(IllegalStateException.class,
+                () -> indexedEvents("[1, 01]".getBytes(StandardCharsets.UTF_8), StructuralIndexer.SCALAR)).getMessage()),
+        () -> assertEquals("unescaped control character U+0009 at 6",
+            assertThrows(IllegalStateException.class,
+                () -> indexedEvents("[1, \"a\tb\"]".getBytes(StandardCharsets.UTF_8), StructuralIndexer.SCALAR)).getMessage())
+    );
+  }
+
+  @Test
+  public void controlCharactersInStrings() {
+    var text = "[\"" + "a".repeat(100) + "\u0001\"]";
+    var bytes = text.getBytes(StandardCharsets.UTF_8);
+    assertAll(
+        () -> assertEquals("unescaped control character U+0001 at 102",
+            assertThrows(IllegalStateException.class, () -> scalarEvents(bytes)).getMessage()),
+        () -> assertEquals("unescaped control character U+0001 at 102",
+            assertThrows(IllegalStateException.class, () -> indexedEvents(bytes, StructuralIndexer.SCALAR)).getMessage())
+    );
+    // control characters outside the strings are whitespaces or invalid characters
+    assertEquals(List.of("null:START_ARRAY", "null:a", "null:END_ARRAY"),
+        indexedEvents("[\n\t\"a\"\r\n]".getBytes(StandardCharsets.UTF_8), StructuralIndexer.SCALAR));
+  }
+
+  @Test
+  public void controlCharactersInStringsVector() {
+    assumeTrue(StructuralIndexer.VECTORIZED);
+    var bytes = ("[\"" + "é".repeat(50) + "\u001f\"]").getBytes(StandardCharsets.UTF_8);
+    assertEquals("unescaped control character U+001F at 102",
+        assertThrows(IllegalStateException.class, () -> indexedEvents(bytes, StructuralIndexer.vectorClassifier())).getMessage());
+  }
+}
@@ -3,18 +3,37 @@ package com.github.forax.framework.mapper;
 import com.github.forax.framework.mapper.ToyJSONParser.JSONVisitor;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ToyJSONParserTest {
   private static Object asJava(String text) {
+    return asJava(visitor -> ToyJSONParser.parse(text, visitor));
+  }
+
+  private static Object asJava(Consumer<JSONVisitor> parser) {
     var visitor = new JSONVisitor() {
       private Object result;
       private final ArrayDeque<Object> stack = new ArrayDeque<>();
@@ -64,7 +83,7 @@ class ToyJSONParserTest {
         }
       }
     };
-    ToyJSONParser.parse(text, visitor);
+    parser.accept(visitor);
     return visitor.result;
   }
 
@@ -143,4 +162,362 @@ class ToyJSONParserTest {
         [ 13.4, null ]
         """));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void parseNumbers() {
+    assertEquals(
+        List.of(0, -12, 3_000_000_000L, -3_000_000_000L, 1.5, -0.25, 1.0E10, 2.5e-3),
+        asJava("[0, -12, 3000000000, -3000000000, 1.5, -0.25, 1.0E10, 2.5e-3]"));
+  }
+
+  @Test
+  public void parseEscapedStrings() {
+    assertEquals(
+        List.of("a\"b", "back\\slash", "tab\tnew\nline", "\u00e9t\u00e9", "/"),
+        asJava("""
+            ["a\\"b", "back\\\\slash", "tab\\tnew\\nline", "\\u00e9t\\u00e9", "\\/"]
+            """));
+  }
+
+  @Test
+  public void parseErrors() {
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> asJava("")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("{ \"foo\": bar }")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("{ \"foo\": \"bar }")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("{ \"foo\" 3 }")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("[ 1, 2 ")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("[ nul ]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("[ 1-2 ]"))
+    );
+  }
+
+  @Test
+  public void parseErrorMessage() {
+    var exception = assertThrows(IllegalStateException.class, () -> asJava("{ \"foo\" 3 }"));
+    assertTrue(exception.getMessage().startsWith("expect COLON but recognized INTEGER at 8"), exception.getMessage());
+  }
+
+  @Test
+  public void parseUTF8() {
+    var text = """
+        { "name": "Élodie", "city": "Zürich", "age": 31, "height": 1.72, "tags": ["日本", "a\\"b"], "admin": false }
+        """;
+    var bytes = text.getBytes(StandardCharsets.UTF_8);
+    assertEquals(asJava(text), asJava(visitor -> ToyJSONParser.parse(bytes, visitor)));
+  }
+
+  @Test
+  public void parseUTF8NonASCIIKeys() {
+    var bytes = """
+        { "clé": "valeur", "ключ": 1 }
+        """.getBytes(StandardCharsets.UTF_8);
+    assertEquals(Map.of("clé", "valeur", "ключ", 1), asJava(visitor -> ToyJSONParser.parse(bytes, visitor)));
+  }
+
+  @Test
+  public void parseHeapByteBuffer() {
+    var bytes = "--[1, \"é\", true]--".getBytes(StandardCharsets.UTF_8);
+    var buffer = ByteBuffer.wrap(bytes, 2, bytes.length - 4).slice();
+    var buffer2 = ByteBuffer.wrap(bytes).position(2).limit(bytes.length - 2);
+    assertAll(
+        () -> assertEquals(List.of(1, "é", true), asJava(visitor -> ToyJSONParser.parse(buffer, visitor))),
+        () -> assertEquals(List.of(1, "é", true), asJava(visitor -> ToyJSONParser.parse(buffer2, visitor))),
+        () -> assertEquals(2, buffer2.position())
+    );
+  }
+
+  @Test
+  public void parseDirectByteBuffer() {
+    var bytes = "{ \"foo\": [1.5, null] }".getBytes(StandardCharsets.UTF_8);
+    var buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    assertEquals(Map.of("foo", Arrays.asList(1.5, null)), asJava(visitor -> ToyJSONParser.parse(buffer, visitor)));
+  }
+
+  @Test
+  public void parseUTF8ErrorMessage() {
+    var buffer = ByteBuffer.wrap("xx{ \"foo\" 3 }".getBytes(StandardCharsets.UTF_8)).position(2);
+    var exception = assertThrows(IllegalStateException.class, () -> asJava(visitor -> ToyJSONParser.parse(buffer, visitor)));
+    assertTrue(exception.getMessage().startsWith("expect COLON but recognized INTEGER at 8"), exception.getMessage());
+  }
+
+  @Test
+  public void parseInvalidUnicodeEscape() {
+    for (var text : List.of("[\"\\u+04a\"]", "[\"\\u-04a\"]", "[\"\\u004g\"]", "[\"\\u\uff10041\"]")) {
+      var bytes = text.getBytes(StandardCharsets.UTF_8);
+      assertAll(
+          () -> assertThrows(IllegalStateException.class, () -> asJava(text), text),
+          () -> assertThrows(IllegalStateException.class, () -> asJava(visitor -> ToyJSONParser.parse(bytes, visitor)), text),
+          () -> assertThrows(IllegalStateException.class, () -> asJava(visitor -> {
+            try {
+              ToyJSONParser.parse(new ByteArrayInputStream(bytes), visitor);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          }), text)
+      );
+    }
+    assertEquals(List.of("\u04aF"), asJava("[\"\\u04aF\"]"));
+  }
+
+  private static void assertRejectedByAllInputs(String text) {
+    var bytes = text.getBytes(StandardCharsets.UTF_8);
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> asJava(text), text),
+        () -> assertThrows(IllegalStateException.class, () -> asJava(visitor -> ToyJSONParser.parse(bytes, visitor)), text),
+        () -> assertThrows(IllegalStateException.class, () -> asJava(visitor -> {
+          try {
+            ToyJSONParser.parse(new StringReader(text), visitor);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }), text),
+        () -> assertThrows(IllegalStateException.class, () -> asJava(visitor -> {
+          try {
+            ToyJSONParser.parse(new ByteArrayInputStream(bytes), visitor);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }), text)
+    );
+  }
+
+  @Test
+  public void parseInvalidNumbers() {
+    for (var number : List.of(".5", "+1", "01", "-01", "1.", "-", "-.5", "1.e3", "1e", "1e+", "1E-", "1.5.2", "1e5e2", "1-2", "0x10", "1a", "2.5f")) {
+      assertRejectedByAllInputs("[" + number + "]");
+      assertRejectedByAllInputs("{\"a\": " + number + "}");
+    }
+    assertEquals(List.of(0, -0, 10, 0.5, -0.5, 1e3, 1.5E+3, 2e-3, -0.0), asJava("[0, -0, 10, 0.5, -0.5, 1e3, 1.5E+3, 2e-3, -0.0]"));
+  }
+
+  @Test
+  public void parseInvalidTokenEnds() {
+    for (var text : List.of("[nullx]", "[truefalse]", "[false1]", "[1true]", "[12null]", "{\"a\": 1.5x}", "[true", "1 2")) {
+      assertRejectedByAllInputs(text);
+    }
+  }
+
+  @Test
+  public void parseControlCharactersInStrings() {
+    for (var c = 0; c < 0x20; c++) {
+      assertRejectedByAllInputs("[\"a" + (char) c + "b\"]");
+    }
+    assertRejectedByAllInputs("{\"a\nb\": 1}");
+    assertEquals(List.of("a\u007fb", "tab\tnew\nline"), asJava("[\"a\u007fb\", \"tab\\tnew\\nline\"]"));
+  }
+
+  @Test
+  public void parseErrorMessageIsBounded() {
+    var text = "[" + "\"é\", ".repeat(100_000) + "\"é\" \"é\", " + "1, ".repeat(100_000) + "1]";
+    var bytes = text.getBytes(StandardCharsets.UTF_8);
+    var exception = assertThrows(IllegalStateException.class, () -> asJava(text));
+    var utf8Exception = assertThrows(IllegalStateException.class, () -> asJava(visitor -> ToyJSONParser.parse(bytes, visitor)));
+    assertAll(
+        () -> assertTrue(exception.getMessage().length() < 200, exception.getMessage()),
+        () -> assertTrue(exception.getMessage().contains("\"é\" \"é\""), exception.getMessage()),
+        () -> assertTrue(utf8Exception.getMessage().length() < 200, utf8Exception.getMessage()),
+        () -> assertTrue(utf8Exception.getMessage().contains("\"é\" \"é\""), utf8Exception.getMessage()),
+        () -> assertFalse(utf8Exception.getMessage().contains("\uFFFD"), utf8Exception.getMessage())
+    );
+  }
+
+  /**
+   * A reader that returns at most one char per read, so every token straddles a refill of the buffer.
+   */
+  private static Reader oneCharReader(String text) {
+    return new FilterReader(new StringReader(text)) {
+      @Override
+      public int read(char[] buffer, int offset, int length) throws IOException {
+        return super.read(buffer, offset, Math.min(1, length));
+      }
+    };
+  }
+
+  private static InputStream oneByteInputStream(byte[] bytes) {
+    return new FilterInputStream(new ByteArrayInputStream(bytes)) {
+      @Override
+      public int read(byte[] buffer, int offset, int length) throws IOException {
+        return super.read(buffer, offset, Math.min(1, length));
+      }
+    };
+  }
+
+  private static final JSONVisitor IGNORE = new JSONVisitor() {
+    @Override
+    public void value(String key, Object value) {}
+    @Override
+    public void startObject(String key) {}
+    @Override
+    public void endObject(String key) {}
+    @Override
+    public void startArray(String key) {}
+    @Override
+    public void endArray(String key) {}
+  };
+
+  private static final String DOCUMENT = """
+      {
+        "name": "Élodie", "escaped": "a\\"b\\\\c\\u00e9", "age": 31, "height": 1.72, "big": -3000000000,
+        "tags": ["日本", "", true, false, null, 2.5e-3], "nested": { "empty": {}, "list": [[], [1]] }
+      }
+      """;
+
+  @Test
+  public void parseReader() {
+    assertEquals(asJava(DOCUMENT), asJava(visitor -> {
+      try {
+        ToyJSONParser.parse(oneCharReader(DOCUMENT), visitor);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }));
+  }
+
+  @Test
+  public void parseInputStream() {
+    var bytes = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+    assertEquals(asJava(DOCUMENT), asJava(visitor -> {
+      try {
+        ToyJSONParser.parse(oneByteInputStream(bytes), visitor);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }));
+  }
+
+  @Test
+  public void parseInputStreamStringBiggerThanTheBuffer() {
+    var text = "[\"" + "é".repeat(20_000) + "\", 1]";
+    assertEquals(List.of("é".repeat(20_000), 1), asJava(visitor -> {
+      try {
+        ToyJSONParser.parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), visitor);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }));
+  }
+
+  @Test
+  public void parseInputStreamLargeDocument() throws IOException {
+    var count = 1_000_000;
+    var elements = IntStream.range(0, count).mapToObj(i -> "{\"id\": " + i + "}").iterator();
+    // the document is produced lazily, it is never fully in memory
+    var inputStream = new InputStream() {
+      private byte[] bytes = "[".getBytes(StandardCharsets.UTF_8);
+      private int index;
+
+      @Override
+      public int read() {
+        if (index == bytes.length) {
+          if (bytes == null) {
+            return -1;
+          }
+          bytes = elements.hasNext() ? (elements.next() + (elements.hasNext() ? ", " : "]")).getBytes(StandardCharsets.UTF_8) : null;
+          index = 0;
+          if (bytes == null) {
+            return -1;
+          }
+        }
+        return bytes[index++];
+      }
+    };
+    var visitor = new JSONVisitor() {
+      private int sum;
+      private int objects;
+
+      @Override
+      public void value(String key, Object value) {
+        sum += (Integer) value;
+      }
+      @Override
+      public void startObject(String key) {
+        objects++;
+      }
+      @Override
+      public void endObject(String key) {}
+      @Override
+      public void startArray(String key) {}
+      @Override
+      public void endArray(String key) {}
+    };
+    ToyJSONParser.parse(inputStream, visitor);
+    assertAll(
+        () -> assertEquals(count, visitor.objects),
+        () -> assertEquals(IntStream.range(0, count).sum(), visitor.sum)
+    );
+  }
+
+  @Test
+  public void parseReaderErrorLocation() {
+    var text = " ".repeat(10_000) + "{ \"foo\" 3 }";
+    var exception = assertThrows(IllegalStateException.class, () -> ToyJSONParser.parse(new StringReader(text), IGNORE));
+    assertEquals("expect COLON but recognized INTEGER at 10008", exception.getMessage());
+  }
+
+  @Test
+  public void parseReaderIOException() {
+    var reader = new Reader() {
+      @Override
+      public int read(char[] buffer, int offset, int length) throws IOException {
+        throw new IOException("disk error");
+      }
+      @Override
+      public void close() {}
+    };
+    assertThrows(IOException.class, () -> ToyJSONParser.parse(reader, IGNORE));
+  }
+
+  @Test
+  public void skip() {
+    var events = new ArrayList<String>();
+    ToyJSONParser.parse("""
+        { "a": 1, "b": { "c": [1, 2] }, "d": [3, { "e": 4 }, 5], "f": "\\q" }
+        """, new JSONVisitor() {
+      private int index;
+
+      @Override
+      public boolean skip(String key) {
+        events.add("skip " + key);
+        return "b".equals(key) || "f".equals(key) || (key == null && index++ % 2 == 1);
+      }
+      @Override
+      public void value(String key, Object value) {
+        events.add(key + "=" + value);
+      }
+      @Override
+      public void startObject(String key) {
+        events.add("{" + key);
+      }
+      @Override
+      public void endObject(String key) {
+        events.add("}" + key);
+      }
+      @Override
+      public void startArray(String key) {
+        events.add("[" + key);
+      }
+      @Override
+      public void endArray(String key) {
+        events.add("]" + key);
+      }
+    });
+    assertEquals(List.of(
+        "{null", "skip a", "a=1", "skip b", "skip d", "[d",
+        "skip null", "null=3", "skip null", "skip null", "null=5", "]d",
+        "skip f", "}null"), events);
+  }
+
+  @Test
+  public void pathFilter() {
+    var text = """
+        { "items": [ { "id": 1, "tags": ["x"] }, { "id": 2, "extra": { "id": 3 } } ], "id": 4 }
+        """;
+    var path = JSONPath.compile("$.items[*].id");
+    assertAll(
+        () -> assertEquals(List.of(1, 2), asJava(visitor -> ToyJSONParser.parse(text, path.filter(visitor)))),
+        () -> assertEquals(List.of(1, 2), asJava(visitor -> ToyJSONParser.parse(text.getBytes(StandardCharsets.UTF_8), path.filter(visitor)))),
+        () -> assertEquals(List.of(Map.of("id", 3)), asJava(visitor -> ToyJSONParser.parse(text, JSONPath.compile("$.items[1].extra").filter(visitor))))
+    );
+  }
+}